@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.FriendSuggestions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Подсказки друзей на графе со степенным распределением без контекста Spring и без кэша. Каждая связь
+// соединяет случайного пользователя с пользователем, выбранным по Ципфу с показателем skew, и добавляется
+// в обе стороны, поэтому у первых id десятки тысяч друзей и они же встречаются в списках почти у всех.
+// suggestForHub считает подсказки для самих хабов; maxVisited=0 - обход без ограничения для сравнения
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FriendSuggestionsBenchmark {
+    private static final int HUBS = 10;
+
+    @Param("100000")
+    private int users;
+
+    @Param("1000000")
+    private int friendships;
+
+    @Param({"0.8", "1.1"})
+    private double skew;
+
+    @Param({"20000", "0"})
+    private long maxVisited;
+
+    private FriendSuggestions suggestions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FriendGraph graph = new FriendGraph();
+        graph.rebuild(generate(), 0);
+        suggestions = new FriendSuggestions(graph, maxVisited, false, 0, 0);
+    }
+
+    @Benchmark
+    public long[] suggest() {
+        return suggestions.suggest(1L + ThreadLocalRandom.current().nextInt(users), FriendSuggestions.DEFAULT_LIMIT);
+    }
+
+    @Benchmark
+    public long[] suggestForHub() {
+        return suggestions.suggest(1L + ThreadLocalRandom.current().nextInt(HUBS), FriendSuggestions.DEFAULT_LIMIT);
+    }
+
+    private Map<Long, long[]> generate() {
+        double[] cumulative = new double[users];
+        double sum = 0;
+        for (int k = 0; k < users; k++) {
+            sum += 1 / Math.pow(k + 1, skew);
+            cumulative[k] = sum;
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        long[] from = new long[friendships];
+        long[] to = new long[friendships];
+        int[] degrees = new int[users + 1];
+        for (int i = 0; i < friendships; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            from[i] = 1 + random.nextInt(users);
+            to[i] = 1 + Math.min(rank >= 0 ? rank : -rank - 1, users - 1);
+            degrees[(int) from[i]]++;
+            degrees[(int) to[i]]++;
+        }
+        long[][] lists = new long[users + 1][];
+        for (int user = 1; user <= users; user++) {
+            lists[user] = new long[degrees[user]];
+            degrees[user] = 0;
+        }
+        for (int i = 0; i < friendships; i++) {
+            lists[(int) from[i]][degrees[(int) from[i]]++] = to[i];
+            lists[(int) to[i]][degrees[(int) to[i]]++] = from[i];
+        }
+        Map<Long, long[]> friendsByUser = new HashMap<>();
+        for (int user = 1; user <= users; user++) {
+            long self = user;
+            long[] friends = Arrays.stream(lists[user]).filter(friend -> friend != self).sorted().distinct().toArray();
+            friendsByUser.put(self, friends);
+        }
+        return friendsByUser;
+    }
+}
@@ -0,0 +1,157 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.datagen.DatasetGenerator;
+import ru.yandex.practicum.filmorate.datagen.DatasetSpec;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.service.MaintenanceService;
+import ru.yandex.practicum.filmorate.storage.EventStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Бенчмарки чтения из хранилищ. Контекст поднимается без веб-сервера на H2 в памяти, заполняется
+// синтетическими данными (см. DatasetGenerator), после чего индексы перестраиваются, как при старте.
+// Периодические задачи выключены, чтобы пересчёт соседей и сброс кэша фильмов не попадали в замеры.
+// Размер данных задаётся параметрами JMH: mvn -P jmh -DskipTests verify -Djmh.args="-p users=50000"
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+    private static final String[] SEARCH_BY = {"title", "director"};
+
+    @Param("10000")
+    private int users;
+
+    @Param("5000")
+    private int films;
+
+    @Param("200000")
+    private long likes;
+
+    @Param("100000")
+    private long friendships;
+
+    @Param("200000")
+    private long events;
+
+    @Param("true")
+    private boolean filmCache;
+
+    private ConfigurableApplicationContext context;
+    private FilmStorage filmStorage;
+    private UserStorage userStorage;
+    private EventStorage eventStorage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(Map.of(
+                        "spring.datasource.url", "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "filmorate.cache.films.enabled", String.valueOf(filmCache),
+                        "filmorate.scheduling.enabled", "false",
+                        "logging.level.root", "WARN",
+                        "spring.main.banner-mode", "off"))
+                .run();
+        DatasetSpec spec = DatasetSpec.builder()
+                .users(users)
+                .films(films)
+                .directors(Math.max(1, films / 10))
+                .likes(likes)
+                .friendships(friendships)
+                .reviews(users / 2)
+                .events(events)
+                .build();
+        new DatasetGenerator(context.getBean(DataSource.class), spec).generate();
+        MaintenanceService maintenanceService = context.getBean(MaintenanceService.class);
+        maintenanceService.rebuildExistenceIndex();
+        maintenanceService.rebuildFriendGraph();
+        maintenanceService.rebuildPopularIndex(false);
+        maintenanceService.rebuildSearchIndex();
+        maintenanceService.rebuildRecommendations();
+        filmStorage = context.getBean(FilmStorage.class);
+        userStorage = context.getBean(UserStorage.class);
+        eventStorage = context.getBean(EventStorage.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Film> getTopFilms() {
+        return filmStorage.getTopFilms(10, null, null);
+    }
+
+    @Benchmark
+    public List<Film> getTopFilmsByGenreAndYear() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return filmStorage.getTopFilms(10, 1L + random.nextInt(6), 1950 + random.nextInt(75));
+    }
+
+    @Benchmark
+    public Film getFilmById() {
+        return filmStorage.getFilmById(randomFilm());
+    }
+
+    @Benchmark
+    public List<Film> getSearchedFilms() {
+        List<String> words = DatasetGenerator.TITLE_WORDS;
+        String word = words.get(ThreadLocalRandom.current().nextInt(words.size()));
+        return filmStorage.getSearchedFilms(word.substring(0, 4), SEARCH_BY);
+    }
+
+    @Benchmark
+    public List<Film> getCommonFilms() {
+        return filmStorage.getCommonFilms(randomUser(), randomUser());
+    }
+
+    @Benchmark
+    public List<Film> getRecommendations() {
+        return userStorage.getRecommendations(randomUser());
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends() {
+        return userStorage.getCommonFriends(randomUser(), randomUser());
+    }
+
+    @Benchmark
+    public List<User> getFriends() {
+        return userStorage.getFriends(randomUser());
+    }
+
+    @Benchmark
+    public List<User> getSuggestions() {
+        return userStorage.getSuggestions(randomUser(), 10);
+    }
+
+    @Benchmark
+    public List<Event> getUserFeed() {
+        return eventStorage.getUserFeed(randomUser());
+    }
+
+    private long randomUser() {
+        return 1 + ThreadLocalRandom.current().nextInt(users);
+    }
+
+    private long randomFilm() {
+        return 1 + ThreadLocalRandom.current().nextInt(films);
+    }
+}
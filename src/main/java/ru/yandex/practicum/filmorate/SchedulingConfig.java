@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Методы @Scheduled (пересчёт таблицы соседей, проверка справочников) запускаются, только если
+// filmorate.scheduling.enabled не выключено; бенчмарки выключают его, чтобы фоновая работа не искажала замеры
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "filmorate.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Кэш фильмов вместе с жанрами и режиссерами: LRU по размеру и TTL по времени записи.
+// Хранятся и отдаются копии, чтобы вызывающий код не мог испортить закэшированный фильм.
+// Любая инвалидация увеличивает версию; загрузка из БД, начатая до неё, в кэш не попадёт (см. put).
+// Фильмы лежат в ConcurrentHashMap, и чтение не берёт общей блокировки, копия делается вне её. Вытеснение, как
+// в PopularResponseCache, - приблизительный LRU: запись помнит время последнего обращения, и когда фильмов
+// становится больше max-size, один поток удаляет самые давние так, чтобы осталось 90% от max-size
+@Slf4j
+@Component
+public class FilmCache {
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private static final class Entry {
+        private final Film film;
+        private final long expiresAt;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry(Film film, long expiresAt) {
+            this.film = film;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public FilmCache(@Value("${filmorate.cache.films.enabled:true}") boolean enabled,
+                     @Value("${filmorate.cache.films.max-size:10000}") int maxSize,
+                     @Value("${filmorate.cache.films.ttl-ms:300000}") long ttlMillis,
+                     MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        FunctionCounter.builder("filmorate.cache.films.gets", hits, AtomicLong::get)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("filmorate.cache.films.gets", misses, AtomicLong::get)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("filmorate.cache.films.evictions", evictions, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("filmorate.cache.films.size", this, FilmCache::size).register(meterRegistry);
+        Gauge.builder("filmorate.cache.films.hit.ratio", this, FilmCache::hitRatio).register(meterRegistry);
+        log.info("Кэш фильмов {}: размер {}, TTL {} мс", enabled ? "включён" : "выключен", maxSize, ttlMillis);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public Film get(Long filmId) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.get(filmId);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            if (entries.remove(filmId, entry)) {
+                evictions.incrementAndGet();
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        entry.lastAccess = System.nanoTime();
+        hits.incrementAndGet();
+        return copy(entry.film);
+    }
+
+    // Кладёт фильм, только если с момента loadVersion не было инвалидаций: иначе загруженные данные могли устареть.
+    // Инвалидация сначала меняет версию, а потом удаляет записи, поэтому после записи версия проверяется ещё раз:
+    // если она не изменилась, удаление идёт позже и запись увидит, иначе запись убирается здесь же
+    public void put(Film film, long loadVersion) {
+        if (!enabled || version.get() != loadVersion) {
+            return;
+        }
+        Entry entry = new Entry(copy(film), System.currentTimeMillis() + ttlMillis);
+        Entry previous = entries.put(film.getId(), entry);
+        if (version.get() != loadVersion) {
+            entries.remove(film.getId(), entry);
+            return;
+        }
+        if (previous == null && entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    public void invalidate(Long filmId) {
+        version.incrementAndGet();
+        entries.remove(filmId);
+    }
+
+    // Режиссер хранится внутри закэшированных фильмов, поэтому ищем их перебором
+    public void invalidateByDirector(int directorId) {
+        version.incrementAndGet();
+        entries.values().removeIf(entry -> entry.film.getDirectors().stream()
+                .anyMatch(director -> director.getId() == directorId));
+    }
+
+    public void invalidateAll() {
+        version.incrementAndGet();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public double hitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    // Удаляет самые давно запрошенные фильмы; пока один поток вытесняет, остальные его не ждут
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long[] accesses = entries.values().stream().mapToLong(entry -> entry.lastAccess).toArray();
+            int remove = accesses.length - maxSize * 9 / 10;
+            if (remove <= 0) {
+                return;
+            }
+            Arrays.sort(accesses);
+            long cutoff = accesses[remove - 1];
+            int before = entries.size();
+            entries.values().removeIf(entry -> entry.lastAccess <= cutoff);
+            evictions.addAndGet(Math.max(0, before - entries.size()));
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static Film copy(Film source) {
+        Film film = new Film();
+        film.setId(source.getId());
+        film.setName(source.getName());
+        film.setDescription(source.getDescription());
+        film.setReleaseDate(source.getReleaseDate());
+        film.setDuration(source.getDuration());
+        if (source.getMpa() != null) {
+            MpaRating mpa = new MpaRating();
+            mpa.setId(source.getMpa().getId());
+            mpa.setName(source.getMpa().getName());
+            film.setMpa(mpa);
+        }
+        List<Genre> genres = new ArrayList<>();
+        if (source.getGenres() != null) {
+            for (Genre sourceGenre : source.getGenres()) {
+                Genre genre = new Genre();
+                genre.setId(sourceGenre.getId());
+                genre.setName(sourceGenre.getName());
+                genres.add(genre);
+            }
+        }
+        film.setGenres(genres);
+        List<Director> directors = new ArrayList<>();
+        if (source.getDirectors() != null) {
+            for (Director sourceDirector : source.getDirectors()) {
+                Director director = new Director();
+                director.setId(sourceDirector.getId());
+                director.setName(sourceDirector.getName());
+                directors.add(director);
+            }
+        }
+        film.setDirectors(directors);
+        return film;
+    }
+}
@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// Кэш готовых ответов /films/popular: для каждой комбинации (count, genreId, year) хранится JSON в байтах.
+// Ответ помечен версией данных - суммой версий индекса популярных (лайки, добавление и удаление фильмов, жанры
+// и год фильма) и кэша фильмов (изменения фильмов, режиссеров и справочников). Обе версии только растут,
+// поэтому сумма меняется при любом изменении, а сами изменения ничего не пересчитывают: ответ пересобирается
+// при следующем запросе, и сколько бы изменений ни накопилось, это один пересчёт.
+// Пересчитывает один запрос на комбинацию; остальные в это время получают прежний ответ, не дожидаясь
+// пересчёта. Поэтому при потоке лайков ответ отстаёт не больше чем на один пересчёт, а без нагрузки всегда свежий.
+// Комбинации лежат в ConcurrentHashMap, и чтение не берёт общей блокировки. Вытеснение - приблизительный LRU:
+// слот помнит время последнего обращения, и когда комбинаций становится больше max-size, один поток удаляет
+// самые давние так, чтобы осталось 90% от max-size, - один проход по кэшу на каждые max-size / 10 новых комбинаций
+@Slf4j
+@Component
+public class PopularResponseCache {
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final FilmCache filmCache;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxSize;
+    private final Map<Key, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private record Key(int count, Long genreId, Integer year) {
+    }
+
+    private record Response(byte[] body, long version) {
+    }
+
+    private static final class Slot {
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile Response response;
+        private volatile long lastAccess = System.nanoTime();
+    }
+
+    public PopularResponseCache(PopularFilmsIndex popularFilmsIndex, FilmCache filmCache, ObjectMapper objectMapper,
+                                @Value("${filmorate.cache.popular.enabled:true}") boolean enabled,
+                                @Value("${filmorate.cache.popular.max-size:1000}") int maxSize,
+                                MeterRegistry meterRegistry) {
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.filmCache = filmCache;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        FunctionCounter.builder("filmorate.cache.popular.gets", hits, AtomicLong::get)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("filmorate.cache.popular.gets", staleHits, AtomicLong::get)
+                .tag("result", "stale").register(meterRegistry);
+        FunctionCounter.builder("filmorate.cache.popular.gets", misses, AtomicLong::get)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("filmorate.cache.popular.evictions", evictions, AtomicLong::get)
+                .register(meterRegistry);
+        Gauge.builder("filmorate.cache.popular.size", this, PopularResponseCache::size).register(meterRegistry);
+        log.info("Кэш ответов популярных фильмов {}, размер {}", enabled ? "включён" : "выключен", maxSize);
+    }
+
+    // JSON ответа; loader строит список DTO и вызывается, только если ответа нет или он устарел
+    public byte[] get(int count, Long genreId, Integer year, Supplier<?> loader) {
+        if (!enabled) {
+            return serialize(loader.get());
+        }
+        Slot slot = slot(new Key(count, genreId, year));
+        Response response = slot.response;
+        if (response != null && response.version() == dataVersion()) {
+            hits.incrementAndGet();
+            return response.body();
+        }
+        if (slot.refreshing.compareAndSet(false, true)) {
+            try {
+                // Версия берётся до загрузки: изменение во время загрузки оставит ответ устаревшим
+                long version = dataVersion();
+                byte[] body = serialize(loader.get());
+                slot.response = new Response(body, version);
+                misses.incrementAndGet();
+                return body;
+            } finally {
+                slot.refreshing.set(false);
+            }
+        }
+        if (response != null) {
+            staleHits.incrementAndGet();
+            return response.body();
+        }
+        // Первый ответ для комбинации ещё строится другим запросом, отдать нечего
+        misses.incrementAndGet();
+        return serialize(loader.get());
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    private Slot slot(Key key) {
+        Slot slot = slots.get(key);
+        if (slot == null) {
+            slot = slots.computeIfAbsent(key, k -> new Slot());
+            if (slots.size() > maxSize) {
+                evict();
+            }
+        } else {
+            slot.lastAccess = System.nanoTime();
+        }
+        return slot;
+    }
+
+    // Удаляет самые давно запрошенные комбинации; пока один поток вытесняет, остальные его не ждут
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long[] accesses = slots.values().stream().mapToLong(slot -> slot.lastAccess).toArray();
+            int remove = accesses.length - maxSize * 9 / 10;
+            if (remove <= 0) {
+                return;
+            }
+            Arrays.sort(accesses);
+            long cutoff = accesses[remove - 1];
+            int before = slots.size();
+            slots.values().removeIf(slot -> slot.lastAccess <= cutoff);
+            evictions.addAndGet(before - slots.size());
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private long dataVersion() {
+        return popularFilmsIndex.version() + filmCache.version();
+    }
+
+    private byte[] serialize(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать список популярных фильмов", e);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package ru.yandex.practicum.filmorate.cache;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.MpaStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// Справочники жанров и рейтингов MPA в памяти. Таблицы крошечные и почти не меняются, поэтому загружаются
+// целиком в массивы, где индекс равен id. Снимок неизменяемый и подменяется целиком: при каждой проверке
+// таблицы перечитываются, и если содержимое изменилось, публикуется новый снимок с новыми ETag.
+@Slf4j
+@Component
+public class ReferenceDataCache {
+    private final GenreStorage genreStorage;
+    private final MpaStorage mpaStorage;
+    private final FilmCache filmCache;
+    private volatile Snapshot snapshot = new Snapshot(new String[0], new String[0], List.of(), List.of());
+
+    private record Snapshot(String[] genreNames, String[] mpaNames, List<Genre> genres, List<MpaRating> mpaRatings) {
+        String genresEtag() {
+            return Integer.toHexString(genres.hashCode());
+        }
+
+        String mpaEtag() {
+            return Integer.toHexString(mpaRatings.hashCode());
+        }
+    }
+
+    public ReferenceDataCache(GenreStorage genreStorage, MpaStorage mpaStorage, FilmCache filmCache) {
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+        this.filmCache = filmCache;
+    }
+
+    @PostConstruct
+    public synchronized void reload() {
+        List<Genre> genres = genreStorage.getAllGenres();
+        List<MpaRating> mpaRatings = mpaStorage.getAllMpaRatings();
+        Snapshot current = snapshot;
+        if (genres.equals(current.genres()) && mpaRatings.equals(current.mpaRatings())) {
+            return;
+        }
+        String[] genreNames = new String[maxId(genres.stream().map(Genre::getId).toList()) + 1];
+        genres.forEach(genre -> genreNames[genre.getId().intValue()] = genre.getName());
+        String[] mpaNames = new String[maxId(mpaRatings.stream().map(MpaRating::getId).toList()) + 1];
+        mpaRatings.forEach(mpa -> mpaNames[mpa.getId().intValue()] = mpa.getName());
+        snapshot = new Snapshot(genreNames, mpaNames, List.copyOf(genres), List.copyOf(mpaRatings));
+        // Названия жанров и рейтингов хранятся и в закэшированных фильмах
+        filmCache.invalidateAll();
+        log.info("Справочники загружены: жанров {}, рейтингов MPA {}", genres.size(), mpaRatings.size());
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.reference.refresh-interval-ms:60000}",
+            fixedDelayString = "${filmorate.reference.refresh-interval-ms:60000}")
+    public void refresh() {
+        reload();
+    }
+
+    public List<Genre> getAllGenres() {
+        List<Genre> result = new ArrayList<>();
+        snapshot.genres().forEach(genre -> result.add(genre(genre.getId(), genre.getName())));
+        return result;
+    }
+
+    public Genre getGenre(long id) {
+        String name = lookup(snapshot.genreNames(), id);
+        return name != null ? genre(id, name) : null;
+    }
+
+    public boolean hasGenre(Long id) {
+        return id != null && lookup(snapshot.genreNames(), id) != null;
+    }
+
+    public List<MpaRating> getAllMpaRatings() {
+        List<MpaRating> result = new ArrayList<>();
+        snapshot.mpaRatings().forEach(mpa -> result.add(mpa(mpa.getId(), mpa.getName())));
+        return result;
+    }
+
+    public MpaRating getMpa(long id) {
+        String name = lookup(snapshot.mpaNames(), id);
+        return name != null ? mpa(id, name) : null;
+    }
+
+    public boolean hasMpa(Long id) {
+        return id != null && lookup(snapshot.mpaNames(), id) != null;
+    }
+
+    public String getMpaName(long id) {
+        return lookup(snapshot.mpaNames(), id);
+    }
+
+    public String getGenresEtag() {
+        return snapshot.genresEtag();
+    }
+
+    public String getMpaEtag() {
+        return snapshot.mpaEtag();
+    }
+
+    private static String lookup(String[] names, long id) {
+        return id >= 0 && id < names.length ? names[(int) id] : null;
+    }
+
+    private static int maxId(List<Long> ids) {
+        return ids.stream().filter(Objects::nonNull).mapToInt(Long::intValue).max().orElse(-1);
+    }
+
+    private static Genre genre(long id, String name) {
+        Genre genre = new Genre();
+        genre.setId(id);
+        genre.setName(name);
+        return genre;
+    }
+
+    private static MpaRating mpa(long id, String name) {
+        MpaRating mpa = new MpaRating();
+        mpa.setId(id);
+        mpa.setName(name);
+        return mpa;
+    }
+}
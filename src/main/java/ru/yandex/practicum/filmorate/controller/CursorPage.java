@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.experimental.UtilityClass;
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Ключевая пагинация списков: курсор — это ключ сортировки последней отданной строки, закодированный в base64,
+// чтобы клиент не разбирал и не собирал его сам. Хранилище читает строки строго после ключа по индексу,
+// поэтому страница стоит одинаково независимо от того, как далеко от начала она находится.
+// У хранилища просим на одну строку больше лимита: по ней видно, есть ли следующая страница.
+@UtilityClass
+public class CursorPage {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+
+    public static boolean requested(Integer limit, String cursor) {
+        return limit != null || cursor != null;
+    }
+
+    public static int limit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    public static String encode(long... keys) {
+        String raw = Arrays.stream(keys).mapToObj(Long::toString).collect(Collectors.joining(","));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Возвращает null, если курсора нет, то есть запрошена первая страница
+    public static long[] decode(String cursor, int keyCount) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            long[] keys = Arrays.stream(raw.split(",")).mapToLong(Long::parseLong).toArray();
+            if (keys.length != keyCount) {
+                throw new ValidationException("Некорректный курсор: " + cursor);
+            }
+            return keys;
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный курсор: " + cursor);
+        }
+    }
+
+    // Ключ, который хранилище читает как int: значение вне диапазона - подделанный курсор, а не страница
+    public static int intKey(long key, String cursor) {
+        if (key < Integer.MIN_VALUE || key > Integer.MAX_VALUE) {
+            throw new ValidationException("Некорректный курсор: " + cursor);
+        }
+        return (int) key;
+    }
+
+    // Ключ-дата в днях от эпохи; вне диапазона LocalDate курсор отклоняется, а не падает в хранилище
+    public static LocalDate dateKey(long key, String cursor) {
+        if (key < LocalDate.MIN.toEpochDay() || key > LocalDate.MAX.toEpochDay()) {
+            throw new ValidationException("Некорректный курсор: " + cursor);
+        }
+        return LocalDate.ofEpochDay(key);
+    }
+
+    public static <T, R> ResponseEntity<List<R>> toResponse(List<T> rows, int limit, Function<T, long[]> keyOf,
+                                                           Function<T, R> mapper) {
+        List<T> page = rows.size() > limit ? rows.subList(0, limit) : rows;
+        List<R> body = page.stream().map(mapper).toList();
+        if (rows.size() <= limit) {
+            return ResponseEntity.ok(body);
+        }
+        String nextCursor = encode(keyOf.apply(page.get(page.size() - 1)));
+        return ResponseEntity.ok().header(NEXT_CURSOR_HEADER, nextCursor).body(body);
+    }
+}
@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.yandex.practicum.filmorate.dto.DirectorDto;
 import ru.yandex.practicum.filmorate.mapper.RequestDirector;
@@ -10,6 +11,7 @@ import ru.yandex.practicum.filmorate.service.DirectorService;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/directors")
@@ -19,8 +21,17 @@ public class DirectorController {
     private final DirectorService directorService;
 
     @GetMapping
-    public List<DirectorDto> getAllDirectors() {
-        return directorService.getAllDirectors();
+    public ResponseEntity<List<DirectorDto>> getAllDirectors(@RequestParam(required = false) Integer limit,
+                                                             @RequestParam(required = false) String cursor) {
+        if (!CursorPage.requested(limit, cursor)) {
+            return ResponseEntity.ok(directorService.getAllDirectors());
+        }
+        int pageLimit = CursorPage.limit(limit);
+        long[] after = CursorPage.decode(cursor, 1);
+        Integer afterId = after != null ? CursorPage.intKey(after[0], cursor) : null;
+        List<DirectorDto> directors = directorService.getDirectorsPage(afterId, pageLimit + 1);
+        return CursorPage.toResponse(directors, pageLimit, director -> new long[]{director.getId()},
+                Function.identity());
     }
 
     @GetMapping("/{id}")
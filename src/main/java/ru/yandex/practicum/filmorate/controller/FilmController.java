@@ -2,22 +2,28 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.cache.PopularResponseCache;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.dto.FilmDto;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RankedFilm;
 import ru.yandex.practicum.filmorate.model.SortBy;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.time.LocalDate;
-import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -26,20 +32,33 @@ import java.util.stream.Collectors;
 @RequestMapping("/films")
 public class FilmController {
     private final FilmService filmService;
+    private final ReferenceDataCache referenceDataCache;
+    private final JsonArrayStreamer jsonArrayStreamer;
+    private final PopularResponseCache popularResponseCache;
     private static final int DESCRIPTION_LENGTH = 200;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_POPULAR_COUNT = 1000;
     public static final LocalDate RELEASE_DATE = LocalDate.of(1895, 12, 28);
 
-    // Статический набор допустимых идентификаторов жанров
-    private static final Set<Long> VALID_GENRE_IDS = Set.of(1L, 2L, 3L, 4L, 5L, 6L); // Пример допустимых ID жанров
+    // Без limit и cursor каталог отдаётся целиком потоком, с ними — страницей по курсору (см. findPage)
+    @GetMapping(params = {"!limit", "!cursor"})
+    public ResponseEntity<StreamingResponseBody> findAll(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        log.info("Запрос на получение всех фильмов");
+        Consumer<Consumer<Film>> films = filmService.streamAllFilms();
+        return jsonArrayStreamer.stream(
+                (Consumer<FilmDto> consumer) -> films.accept(film -> consumer.accept(FilmMapper.toFilmDto(film))),
+                accept);
+    }
 
     @GetMapping
-    public ResponseEntity<Collection<FilmDto>> findAll() {
-        log.info("Запрос на получение всех фильмов");
-        Collection<Film> films = filmService.getAllFilms();
-        Collection<FilmDto> filmDtos = films.stream()
-                .map(FilmMapper::toFilmDto)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(filmDtos);
+    public ResponseEntity<List<FilmDto>> findPage(@RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) String cursor) {
+        int pageLimit = CursorPage.limit(limit);
+        long[] after = CursorPage.decode(cursor, 1);
+        log.info("Запрос страницы фильмов после курсора {}, не более {}", cursor, pageLimit);
+        List<Film> films = filmService.getFilmsPage(after != null ? after[0] : null, pageLimit + 1);
+        return CursorPage.toResponse(films, pageLimit, film -> new long[]{film.getId()}, FilmMapper::toFilmDto);
     }
 
     @PostMapping
@@ -55,8 +74,7 @@ public class FilmController {
     @PutMapping
     public ResponseEntity<FilmDto> update(@RequestBody FilmDto filmDto) {
         log.info("Обновление фильма с id = {}", filmDto.getId());
-        Film existingFilm = filmService.getFilmById(filmDto.getId());
-        if (existingFilm == null) {
+        if (!filmService.existsById(filmDto.getId())) {
             log.error("Фильм с id = {} не найден", filmDto.getId());
             throw new NotFoundException("Фильм с id = " + filmDto.getId() + " не найден");
         }
@@ -81,23 +99,43 @@ public class FilmController {
         return ResponseEntity.ok(filmDto);
     }
 
+    @GetMapping("/batch")
+    public ResponseEntity<List<FilmDto>> getFilmsBatch(@RequestParam List<Long> ids) {
+        log.info("Запрос на получение {} фильмов по списку id", ids.size());
+        if (ids.size() > MAX_BATCH_SIZE) {
+            log.error("Ошибка валидации: за один запрос можно получить не более {} фильмов", MAX_BATCH_SIZE);
+            throw new ValidationException("За один запрос можно получить не более " + MAX_BATCH_SIZE + " фильмов");
+        }
+        List<FilmDto> filmDtos = filmService.getFilmsByIds(ids).stream()
+                .map(FilmMapper::toFilmDto)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(filmDtos);
+    }
+
+    // Ответ отдаётся готовым JSON из кэша и пересобирается только после изменения данных (см. PopularResponseCache)
     @GetMapping("/popular")
-    public ResponseEntity<List<FilmDto>> getPopularFilms(
+    public ResponseEntity<byte[]> getPopularFilms(
             @RequestParam(defaultValue = "10") int count,
             @RequestParam(required = false) Long genreId,
             @RequestParam(required = false) Integer year) {
         log.info("Запрос на получение {} популярных фильмов с genreId = {} и year = {}", count, genreId, year);
-        List<Film> popularFilms = filmService.getTopFilms(count, genreId, year);
-        List<FilmDto> popularFilmDtos = popularFilms.stream()
+        // Проверяем до обращения к кэшу: каждое значение count - отдельная комбинация в нём
+        if (count <= 0 || count > MAX_POPULAR_COUNT) {
+            throw new ValidationException("Параметр count должен быть от 1 до " + MAX_POPULAR_COUNT);
+        }
+        byte[] body = popularResponseCache.get(count, genreId, year, () -> filmService.getTopFilms(count, genreId, year)
+                .stream()
                 .map(FilmMapper::toFilmDto)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(popularFilmDtos);
+                .collect(Collectors.toList()));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     @GetMapping("/director/{directorId}")
     public ResponseEntity<List<Film>> getFilmsByDirector(
             @PathVariable Integer directorId,
-            @RequestParam String sortBy) {
+            @RequestParam String sortBy,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
         log.info("Запрос на получение фильмов режиссера {} с сортировкой по {}", directorId, sortBy);
         String sortByString;
         try {
@@ -108,6 +146,16 @@ public class FilmController {
             throw e;
         }
         log.info("Переданы ДОПУСТИМЫЕ значения сортировки");
+        if (CursorPage.requested(limit, cursor)) {
+            int pageLimit = CursorPage.limit(limit);
+            long[] after = CursorPage.decode(cursor, 2);
+            if (after != null && sortByString.equals("year")) {
+                CursorPage.dateKey(after[0], cursor);
+            }
+            List<RankedFilm> films = filmService.getFilmsByDirectorPage(directorId, sortByString, after,
+                    pageLimit + 1);
+            return CursorPage.toResponse(films, pageLimit, RankedFilm::cursorKey, RankedFilm::film);
+        }
         return ResponseEntity.ok(filmService.getFilmsByDirector(directorId, sortByString));
     }
 
@@ -149,8 +197,7 @@ public class FilmController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteFilm(@PathVariable Long id) {
         log.info("Удаление фильма с id = {}", id);
-        Film existingFilm = filmService.getFilmById(id);
-        if (existingFilm == null) {
+        if (!filmService.existsById(id)) {
             log.error("Фильм с id = {} не найден", id);
             throw new NotFoundException("Фильм с id = " + id + " не найден");
         }
@@ -176,13 +223,13 @@ public class FilmController {
             log.error("Ошибка валидации: Продолжительность должна быть положительным числом");
             throw new ValidationException("Продолжительность должна быть положительным числом");
         }
-        if (film.getMpa().getId() > 6) {
+        if (!referenceDataCache.hasMpa(film.getMpa().getId())) {
             log.error("Ошибка валидации: Рейтинга не существует");
             throw new NotFoundException("MPA Рейтинг должен существовать");
         }
         if (film.getGenres() != null) {
             for (Genre genre : film.getGenres()) {
-                if (!VALID_GENRE_IDS.contains(genre.getId())) {
+                if (!referenceDataCache.hasGenre(genre.getId())) {
                     log.error("Ошибка валидации: Жанра с id {} не существует", genre.getId());
                     throw new NotFoundException("Жанр с id " + genre.getId() + " не существует");
                 }
@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.dto.FilmImportReport;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.importer.FilmImportFormat;
+import ru.yandex.practicum.filmorate.importer.FilmImportService;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/films")
+public class FilmImportController {
+    private static final int MAX_IMPORT_ID_LENGTH = 100;
+
+    private final FilmImportService filmImportService;
+
+    // Импорт каталога: тело — CSV (text/csv) или NDJSON (application/x-ndjson), читается потоком.
+    // Без importId импорт получает новый id, он возвращается в отчёте. Повторный запрос с тем же importId
+    // и тем же телом продолжает прерванный импорт с последней сохранённой пачки
+    @PostMapping("/import")
+    public ResponseEntity<FilmImportReport> importFilms(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestParam(required = false) String importId) {
+        FilmImportFormat format = FilmImportFormat.fromContentType(contentType);
+        if (importId == null) {
+            importId = UUID.randomUUID().toString();
+        } else if (importId.isBlank() || importId.length() > MAX_IMPORT_ID_LENGTH) {
+            throw new ValidationException("importId должен быть непустым и не длиннее " + MAX_IMPORT_ID_LENGTH
+                    + " символов");
+        }
+        log.info("Импорт каталога {} в формате {}", importId, format);
+        return ResponseEntity.ok(filmImportService.importFilms(body, format, importId));
+    }
+}
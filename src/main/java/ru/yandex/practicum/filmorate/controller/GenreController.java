@@ -1,10 +1,12 @@
 package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.service.GenreService;
@@ -18,17 +20,26 @@ public class GenreController {
 
     private final GenreService genreService;
 
+    // Справочник меняется редко: по If-None-Match клиенту отвечаем 304 без тела
     @GetMapping
-    public List<Genre> getAllGenres() {
-        return genreService.getAllGenres();
+    public ResponseEntity<List<Genre>> getAllGenres(WebRequest request) {
+        String etag = genreService.getGenresEtag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(genreService.getAllGenres());
     }
 
     @GetMapping("/{id}")
-    public Genre getGenreById(@PathVariable int id) {
+    public ResponseEntity<Genre> getGenreById(@PathVariable int id, WebRequest request) {
         Genre genre = genreService.getGenreById(id);
         if (genre == null) {
             throw new NotFoundException("Жанр с id = " + id + " не найден");
         }
-        return genre;
+        String etag = genreService.getGenresEtag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(genre);
     }
 }
\ No newline at end of file
@@ -1,25 +1,44 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.dto.LikeBatchResult;
+import ru.yandex.practicum.filmorate.dto.LikeBatchStatus;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
 @Slf4j
 @RequiredArgsConstructor
 @Controller
 @RequestMapping("/films")
 public class LikeController {
+    private static final int MAX_BATCH_LIKES = 100_000;
 
     private final FilmService filmService;
     private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final JsonArrayStreamer jsonArrayStreamer;
 
     @PutMapping("/{filmId}/like/{userId}")
     public ResponseEntity<Void> addLike(@PathVariable Long filmId, @PathVariable Long userId) {
@@ -41,12 +60,74 @@ public class LikeController {
         return ResponseEntity.ok().build();
     }
 
+    // Массовая загрузка лайков. Тело — NDJSON с объектом {"filmId", "userId"} на строку или JSON-массив таких объектов.
+    // Ответ содержит результат по каждому лайку в порядке тела запроса, NDJSON или JSON-массивом в зависимости от Accept
+    @PostMapping("/likes:batch")
+    public ResponseEntity<StreamingResponseBody> addLikes(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        List<FilmLike> likes = readLikes(body);
+        log.info("Массовая загрузка {} лайков", likes.size());
+
+        List<LikeBatchResult> results = new ArrayList<>(likes.size());
+        List<FilmLike> validLikes = new ArrayList<>();
+        for (int i = 0; i < likes.size(); i++) {
+            FilmLike like = likes.get(i);
+            LikeBatchStatus status = checkLike(like);
+            results.add(new LikeBatchResult(i, like != null ? like.getFilmId() : null,
+                    like != null ? like.getUserId() : null, status));
+            if (status == null) {
+                validLikes.add(like);
+            }
+        }
+
+        int[] inserted = filmService.addLikes(validLikes);
+        int next = 0;
+        for (LikeBatchResult result : results) {
+            if (result.getStatus() == null) {
+                result.setStatus(inserted[next++] > 0 ? LikeBatchStatus.ADDED : LikeBatchStatus.ALREADY_LIKED);
+            }
+        }
+        return jsonArrayStreamer.stream(results::forEach, accept);
+    }
+
+    private List<FilmLike> readLikes(InputStream body) {
+        List<FilmLike> likes = new ArrayList<>();
+        try (MappingIterator<FilmLike> iterator = objectMapper.readerFor(FilmLike.class).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                if (likes.size() == MAX_BATCH_LIKES) {
+                    throw new ValidationException("За один запрос можно загрузить не более " + MAX_BATCH_LIKES
+                            + " лайков");
+                }
+                likes.add(iterator.nextValue());
+            }
+        } catch (IOException | RuntimeJsonMappingException e) {
+            log.error("Ошибка валидации: некорректное тело массовой загрузки лайков: {}", e.getMessage());
+            throw new ValidationException("Некорректное тело запроса: ожидается NDJSON или JSON-массив лайков");
+        }
+        return likes;
+    }
+
+    // Существование проверяется по индексу в памяти, без запросов к БД. null означает, что лайк можно вставлять
+    private LikeBatchStatus checkLike(FilmLike like) {
+        if (like == null || like.getFilmId() == null || like.getUserId() == null) {
+            return LikeBatchStatus.INVALID;
+        }
+        if (!filmService.existsById(like.getFilmId())) {
+            return LikeBatchStatus.FILM_NOT_FOUND;
+        }
+        if (!userService.existsById(like.getUserId())) {
+            return LikeBatchStatus.USER_NOT_FOUND;
+        }
+        return null;
+    }
+
     private void validateFilmAndUser(Long filmId, Long userId) {
-        if (filmService.getFilmById(filmId) == null) {
+        if (!filmService.existsById(filmId)) {
             log.error("Ошибка валидации: Фильм с id = {} не найден.", filmId);
             throw new NotFoundException("Фильм с id = " + filmId + " не найден.");
         }
-        if (userService.getUserById(userId) == null) {
+        if (!userService.existsById(userId)) {
             log.error("Ошибка валидации: Пользователь с id = {} не найден.", userId);
             throw new NotFoundException("Пользователь с id = " + userId + " не найден.");
         }
@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import ru.yandex.practicum.filmorate.dto.FriendGraphStats;
+import ru.yandex.practicum.filmorate.dto.IndexConsistencyReport;
+import ru.yandex.practicum.filmorate.dto.RecommendationStats;
+import ru.yandex.practicum.filmorate.dto.SearchIndexStats;
+import ru.yandex.practicum.filmorate.service.MaintenanceService;
+
+@Slf4j
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/maintenance")
+public class MaintenanceController {
+    private final MaintenanceService maintenanceService;
+
+    @GetMapping("/popular/consistency")
+    public ResponseEntity<IndexConsistencyReport> checkPopularIndex() {
+        log.info("Запрос на проверку согласованности индекса популярных фильмов");
+        return ResponseEntity.ok(maintenanceService.checkPopularIndex());
+    }
+
+    @PostMapping("/popular/rebuild")
+    public ResponseEntity<IndexConsistencyReport> rebuildPopularIndex(
+            @RequestParam(defaultValue = "false") boolean recount) {
+        log.info("Запрос на перестроение индекса популярных фильмов");
+        maintenanceService.rebuildPopularIndex(recount);
+        return ResponseEntity.ok(maintenanceService.checkPopularIndex());
+    }
+
+    @GetMapping("/search/stats")
+    public ResponseEntity<SearchIndexStats> getSearchIndexStats() {
+        log.info("Запрос на получение статистики поискового индекса");
+        return ResponseEntity.ok(maintenanceService.getSearchIndexStats());
+    }
+
+    @PostMapping("/search/rebuild")
+    public ResponseEntity<SearchIndexStats> rebuildSearchIndex() {
+        log.info("Запрос на перестроение поискового индекса");
+        return ResponseEntity.ok(maintenanceService.rebuildSearchIndex());
+    }
+
+    @GetMapping("/recommendations/stats")
+    public ResponseEntity<RecommendationStats> getRecommendationStats() {
+        log.info("Запрос на получение статистики рекомендаций");
+        return ResponseEntity.ok(maintenanceService.getRecommendationStats());
+    }
+
+    @PostMapping("/recommendations/rebuild")
+    public ResponseEntity<RecommendationStats> rebuildRecommendations() {
+        log.info("Запрос на перестроение рекомендаций");
+        return ResponseEntity.ok(maintenanceService.rebuildRecommendations());
+    }
+
+    @PostMapping("/reference/reload")
+    public ResponseEntity<Void> reloadReferenceData() {
+        log.info("Запрос на перезагрузку справочников");
+        maintenanceService.reloadReferenceData();
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/existence/rebuild")
+    public ResponseEntity<Void> rebuildExistenceIndex() {
+        log.info("Запрос на перестроение индекса существования");
+        maintenanceService.rebuildExistenceIndex();
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/friends/stats")
+    public ResponseEntity<FriendGraphStats> getFriendGraphStats() {
+        log.info("Запрос на получение статистики графа друзей");
+        return ResponseEntity.ok(maintenanceService.getFriendGraphStats());
+    }
+
+    @PostMapping("/friends/rebuild")
+    public ResponseEntity<FriendGraphStats> rebuildFriendGraph() {
+        log.info("Запрос на перестроение графа друзей");
+        return ResponseEntity.ok(maintenanceService.rebuildFriendGraph());
+    }
+}
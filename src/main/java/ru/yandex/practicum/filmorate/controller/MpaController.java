@@ -1,9 +1,11 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.service.MpaService;
@@ -20,17 +22,26 @@ public class MpaController {
         this.mpaService = mpaService;
     }
 
+    // Справочник меняется редко: по If-None-Match клиенту отвечаем 304 без тела
     @GetMapping
-    public List<MpaRating> getAllMpaRatings() {
-        return mpaService.getAllMpaRatings();
+    public ResponseEntity<List<MpaRating>> getAllMpaRatings(WebRequest request) {
+        String etag = mpaService.getMpaEtag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(mpaService.getAllMpaRatings());
     }
 
     @GetMapping("/{id}")
-    public MpaRating getMpaRatingById(@PathVariable int id) {
+    public ResponseEntity<MpaRating> getMpaRatingById(@PathVariable int id, WebRequest request) {
         MpaRating mpaRating = mpaService.getMpaRatingById(id);
         if (mpaRating == null) {
             throw new NotFoundException("Рейтинг с id = " + id + " не найден");
         }
-        return mpaRating;
+        String etag = mpaService.getMpaEtag();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(mpaRating);
     }
 }
\ No newline at end of file
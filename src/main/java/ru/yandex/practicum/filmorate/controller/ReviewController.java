@@ -60,23 +60,20 @@ public class ReviewController {
     }
 
 
+    // count задаёт размер страницы и без filmId; следующая страница запрашивается по курсору из X-Next-Cursor
     @GetMapping
     public ResponseEntity<List<ReviewDto>> getReviews(
             @RequestParam(required = false) Long filmId,
-            @RequestParam(defaultValue = "10") int count) {
-
-        List<Review> reviews;
-
-        if (filmId != null) {
-            reviews = reviewService.getReviewsByFilmId(filmId, count); // передаём count
-        } else {
-            reviews = reviewService.getAllReviewsSortedByUseful(); // без count
-        }
-
-        List<ReviewDto> reviewDtos = reviews.stream()
-                .map(ReviewMapper::toReviewDto)
-                .toList();
-        return ResponseEntity.ok(reviewDtos);
+            @RequestParam(defaultValue = "10") int count,
+            @RequestParam(required = false) String cursor) {
+        int limit = CursorPage.limit(count);
+        long[] after = CursorPage.decode(cursor, 2);
+        List<Review> reviews = reviewService.getReviewsPage(filmId,
+                after != null ? CursorPage.intKey(after[0], cursor) : null,
+                after != null ? after[1] : null,
+                limit + 1);
+        return CursorPage.toResponse(reviews, limit, review -> new long[]{review.getUseful(), review.getReviewId()},
+                ReviewMapper::toReviewDto);
     }
 
     @PutMapping("/{id}/like/{userId}")
@@ -143,11 +140,11 @@ public class ReviewController {
     }
 
     private void validateIds(Long userId, Long filmId) {
-        if (userId != null && userService.getUserById(userId) == null) {
+        if (userId != null && !userService.existsById(userId)) {
             log.error("Ошибка валидации: Пользователь с id = {} не найден.", userId);
             throw new NotFoundException("Пользователь с id = " + userId + " не найден.");
         }
-        if (filmId != null && filmService.getFilmById(filmId) == null) {
+        if (filmId != null && !filmService.existsById(filmId)) {
             log.error("Ошибка валидации: Фильм с id = {} не найден.", filmId);
             throw new NotFoundException("Фильм с id = " + filmId + " не найден.");
         }
@@ -2,23 +2,25 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.dto.FilmDto;
 import ru.yandex.practicum.filmorate.dto.UserDto;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.index.FriendSuggestions;
 import ru.yandex.practicum.filmorate.mapper.FilmMapper;
 import ru.yandex.practicum.filmorate.mapper.UserMapper;
-import ru.yandex.practicum.filmorate.model.event.Event;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.EventService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.time.LocalDate;
-import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -28,15 +30,27 @@ import java.util.stream.Collectors;
 public class UserController {
     private final UserService userService;
     private final EventService eventService;
+    private final JsonArrayStreamer jsonArrayStreamer;
 
-    @GetMapping
-    public ResponseEntity<Collection<UserDto>> findAll() {
+    // Без limit и cursor пользователи отдаются целиком потоком, с ними — страницей по курсору (см. findPage)
+    @GetMapping(params = {"!limit", "!cursor"})
+    public ResponseEntity<StreamingResponseBody> findAll(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         log.info("Запрос на получение всех пользователей");
-        Collection<User> users = userService.getAllUsers();
-        Collection<UserDto> userDtos = users.stream()
-                .map(UserMapper::toUserDto)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(userDtos);
+        Consumer<Consumer<User>> users = userService.streamAllUsers();
+        return jsonArrayStreamer.stream(
+                (Consumer<UserDto> consumer) -> users.accept(user -> consumer.accept(UserMapper.toUserDto(user))),
+                accept);
+    }
+
+    @GetMapping
+    public ResponseEntity<List<UserDto>> findPage(@RequestParam(required = false) Integer limit,
+                                                  @RequestParam(required = false) String cursor) {
+        int pageLimit = CursorPage.limit(limit);
+        long[] after = CursorPage.decode(cursor, 1);
+        log.info("Запрос страницы пользователей после курсора {}, не более {}", cursor, pageLimit);
+        List<User> users = userService.getUsersPage(after != null ? after[0] : null, pageLimit + 1);
+        return CursorPage.toResponse(users, pageLimit, user -> new long[]{user.getId()}, UserMapper::toUserDto);
     }
 
     @GetMapping("/{id}")
@@ -51,8 +65,14 @@ public class UserController {
     }
 
     @GetMapping("/{id}/feed")
-    public List<Event> getUserFeed(@PathVariable Long id) {
-        return eventService.getUserFeed(id);
+    public ResponseEntity<StreamingResponseBody> getUserFeed(@PathVariable Long id,
+                                                             @RequestParam(required = false) Long afterEventId,
+                                                             @RequestParam(required = false) Integer limit) {
+        log.info("Запрос ленты пользователя с id = {}, после события {}, не более {}", id, afterEventId, limit);
+        if (limit != null && limit <= 0) {
+            throw new ValidationException("Параметр limit должен быть положительным");
+        }
+        return jsonArrayStreamer.stream(eventService.getUserFeed(id, afterEventId, limit));
     }
 
     @PostMapping
@@ -69,7 +89,7 @@ public class UserController {
     public ResponseEntity<UserDto> update(@RequestBody UserDto userDto) {
         log.info("Обновление пользователя с id = {}", userDto.getId());
         User user = UserMapper.toUser(userDto);
-        if (userService.getUserById(user.getId()) == null) {
+        if (!userService.existsById(user.getId())) {
             throw new IllegalArgumentException("Пользователь с id = " + user.getId() + " не найден.");
         }
         validateUser(user);
@@ -81,10 +101,10 @@ public class UserController {
     @PutMapping("/{userId}/friends/{friendId}")
     public ResponseEntity<List<UserDto>> addFriend(@PathVariable Long userId, @PathVariable Long friendId) {
         log.info("Пользователь с id = {} стал другом пользователя с id = {}", userId, friendId);
-        if (userService.getUserById(userId) == null) {
+        if (!userService.existsById(userId)) {
             throw new IllegalArgumentException("Пользователь с id = " + userId + " не найден.");
         }
-        if (userService.getUserById(friendId) == null) {
+        if (!userService.existsById(friendId)) {
             throw new IllegalArgumentException("Пользователь с id = " + friendId + " не найден.");
         }
         userService.addFriend(userId, friendId);
@@ -98,24 +118,31 @@ public class UserController {
     @DeleteMapping("/{userId}/friends/{friendId}")
     public ResponseEntity<Void> removeFriend(@PathVariable Long userId, @PathVariable Long friendId) {
         log.info("Пользователь с id = {} удалил пользователя с id = {} из друзей", userId, friendId);
-        if (userService.getUserById(userId) == null) {
+        if (!userService.existsById(userId)) {
             throw new IllegalArgumentException("Пользователь с id = " + userId + " не найден.");
         }
-        if (userService.getUserById(friendId) == null) {
+        if (!userService.existsById(friendId)) {
             throw new IllegalArgumentException("Пользователь с id = " + friendId + " не найден.");
         }
-        validateUserId(userId);
-        validateUserId(friendId);
         userService.removeFriend(userId, friendId);
         return ResponseEntity.ok().build();
     }
 
     @GetMapping("/{userId}/friends")
-    public ResponseEntity<List<UserDto>> getFriends(@PathVariable Long userId) {
+    public ResponseEntity<List<UserDto>> getFriends(@PathVariable Long userId,
+                                                    @RequestParam(required = false) Integer limit,
+                                                    @RequestParam(required = false) String cursor) {
         log.info("Запрос на получение друзей пользователя с id = {}", userId);
-        if (userService.getUserById(userId) == null) {
+        if (!userService.existsById(userId)) {
             throw new IllegalArgumentException("Пользователь с id = " + userId + " не найден.");
         }
+        if (CursorPage.requested(limit, cursor)) {
+            int pageLimit = CursorPage.limit(limit);
+            long[] after = CursorPage.decode(cursor, 1);
+            List<User> friends = userService.getFriendsPage(userId, after != null ? after[0] : null, pageLimit + 1);
+            return CursorPage.toResponse(friends, pageLimit, friend -> new long[]{friend.getId()},
+                    UserMapper::toUserDto);
+        }
         List<User> friends = userService.getFriends(userId);
         List<UserDto> friendDtos = friends.stream()
                 .map(UserMapper::toUserDto)
@@ -133,6 +160,24 @@ public class UserController {
         return ResponseEntity.ok(commonFriendDtos);
     }
 
+    // Возможные знакомые: друзья друзей по убыванию числа общих знакомых
+    @GetMapping("/{userId}/suggestions")
+    public ResponseEntity<List<UserDto>> getSuggestions(@PathVariable Long userId,
+                                                        @RequestParam(required = false) Integer limit) {
+        log.info("Запрос возможных знакомых пользователя с id = {}, не более {}", userId, limit);
+        if (limit != null && (limit <= 0 || limit > FriendSuggestions.MAX_LIMIT)) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + FriendSuggestions.MAX_LIMIT);
+        }
+        if (!userService.existsById(userId)) {
+            throw new IllegalArgumentException("Пользователь с id = " + userId + " не найден.");
+        }
+        List<User> suggestions = userService.getSuggestions(userId,
+                limit != null ? limit : FriendSuggestions.DEFAULT_LIMIT);
+        return ResponseEntity.ok(suggestions.stream()
+                .map(UserMapper::toUserDto)
+                .collect(Collectors.toList()));
+    }
+
     @GetMapping("/{userId}/recommendations")
     public ResponseEntity<List<FilmDto>> getRecommendations(@PathVariable Long userId) {
         validateUserId(userId);
@@ -169,7 +214,7 @@ public class UserController {
     }
 
     private void validateUserId(Long userId) {
-        if (userService.getUserById(userId) == null) {
+        if (!userService.existsById(userId)) {
             log.error("Пользователь с id = {} не найден.", userId);
             throw new ValidationException("Пользователь с id = " + userId + " не найден.");
         }
@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Обновления индексов в памяти выполняются только после фиксации транзакции: при откате индекс не должен
+// опередить БД. Вне транзакции действие выполняется сразу - каждый запрос фиксируется сам
+final class AfterCommit {
+    private AfterCommit() {
+    }
+
+    static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
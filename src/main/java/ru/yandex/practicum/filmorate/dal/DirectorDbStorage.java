@@ -14,7 +14,9 @@ import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.dal.mappers.ResponseDirectorRowMapper;
 import ru.yandex.practicum.filmorate.dto.DirectorDto;
 import ru.yandex.practicum.filmorate.exception.DirectorNotFoundException;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.exception.ErrorAddingData;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.mapper.RequestDirector;
 import ru.yandex.practicum.filmorate.mapper.ResponseDirector;
 import ru.yandex.practicum.filmorate.model.Director;
@@ -31,6 +33,8 @@ public class DirectorDbStorage implements DirectorStorage {
     private final NamedParameterJdbcTemplate jdbc;
     private final ResponseDirectorRowMapper responseMapper;
     private final NamedParameterJdbcTemplate jdbcOperations;
+    private final FilmSearchIndex filmSearchIndex;
+    private final FilmCache filmCache;
 
     @Override
     public List<DirectorDto> getAllDirectors() {
@@ -44,6 +48,15 @@ public class DirectorDbStorage implements DirectorStorage {
         }
     }
 
+    @Override
+    public List<DirectorDto> getDirectorsPage(Integer afterId, int limit) {
+        String query = "SELECT * FROM directors WHERE director_id > :afterId ORDER BY director_id LIMIT :limit";
+        SqlParameterSource namedParameters = new MapSqlParameterSource()
+                .addValue("afterId", afterId != null ? afterId : 0)
+                .addValue("limit", limit);
+        return jdbc.query(query, namedParameters, responseMapper).stream().map(ResponseDirector::getDirectorDto).toList();
+    }
+
     @Override
     public ResponseDirector getDirectorById(Integer id) {
         log.info("В классе {} запущен метод по получению режиссера с id = {}", DirectorDbStorage.class.getName(), id);
@@ -75,6 +88,7 @@ public class DirectorDbStorage implements DirectorStorage {
         try {
             jdbc.update(query, namedParameters, keyHolder, new String[]{"director_id"});
             Integer generatedId = (Integer) keyHolder.getKey();
+            filmSearchIndex.putDirector(generatedId, request.getName().trim());
             return new ResponseDirector(generatedId, request.getName());
         } catch (DataAccessException e) {
             log.debug("Ошибка при создании директора из БД: {}", e.getMessage());
@@ -101,6 +115,8 @@ public class DirectorDbStorage implements DirectorStorage {
             log.debug("Ошибка при обновлении режиссера, данные не были изменены.");
             throw new ErrorAddingData("Данные не были обновлены");
         }
+        filmSearchIndex.putDirector(request.getId(), request.getName());
+        filmCache.invalidateByDirector(request.getId());
         return getDirectorById(request.getId());
     }
 
@@ -116,6 +132,8 @@ public class DirectorDbStorage implements DirectorStorage {
             log.warn("Попытка удалить несуществующего режиссера с id = {}", id);
             throw new DirectorNotFoundException("Режиссер не найден");
         }
+        filmSearchIndex.removeDirector(id);
+        filmCache.invalidateByDirector(id);
     }
 
     private void isDirectorExist(Integer id) {
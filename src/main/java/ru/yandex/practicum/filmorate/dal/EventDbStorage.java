@@ -6,32 +6,36 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dal.mappers.EventRowMapper;
 import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.monitoring.StorageWriteCounters;
 import ru.yandex.practicum.filmorate.storage.EventStorage;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Slf4j
 @Repository
 @RequiredArgsConstructor
 public class EventDbStorage implements EventStorage {
+    private static final String INSERT_SQL = "INSERT INTO events (timestamp, user_id, event_type, operation, entity_id) " +
+            "VALUES (?, ?, ?, ?, ?)";
 
     private final JdbcTemplate jdbcTemplate;
     private final EventRowMapper eventRowMapper;
+    private final StorageWriteCounters writeCounters;
 
 
     @Override
     public void addEvent(Event event) {
-        String sql = "INSERT INTO events (timestamp, user_id, event_type, operation, entity_id) " +
-                "VALUES (?, ?, ?, ?, ?)";
-
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         jdbcTemplate.update(connection -> {
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
             ps.setLong(1, event.getTimestamp());
             ps.setLong(2, event.getUserId());
             ps.setString(3, event.getEventType().toString());
@@ -43,11 +47,48 @@ public class EventDbStorage implements EventStorage {
         // Устанавливаем сгенерированный event_id в объект Event
         Long generatedId = keyHolder.getKey().longValue();
         event.setEventId(generatedId); // Обновляем объект Event
+        writeCounters.record("event", "add", 1);
+    }
+
+    // Пакет пишется в одной транзакции: при ошибке не остаётся частично вставленных строк
+    @Override
+    @Transactional
+    public void addEvents(List<Event> events) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, events, events.size(), (ps, event) -> {
+            ps.setLong(1, event.getTimestamp());
+            ps.setLong(2, event.getUserId());
+            ps.setString(3, event.getEventType().toString());
+            ps.setString(4, event.getOperation().toString());
+            ps.setLong(5, event.getEntityId());
+        });
+        writeCounters.record("event", "add", events.size());
     }
 
     @Override
     public List<Event> getUserFeed(Long userId) {
-        String sql = "SELECT * FROM events WHERE user_id = ?";
-        return jdbcTemplate.query(sql, eventRowMapper, userId);
+        List<Event> feed = new ArrayList<>();
+        streamUserFeed(userId, null, null, feed::add);
+        return feed;
+    }
+
+    // Ключевая пагинация по индексу (user_id, event_id): строки отдаются потребителю по мере чтения из БД
+    @Override
+    public void streamUserFeed(Long userId, Long afterEventId, Integer limit, Consumer<Event> consumer) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM events WHERE user_id = ?");
+        List<Object> params = new ArrayList<>();
+        params.add(userId);
+        if (afterEventId != null) {
+            sql.append(" AND event_id > ?");
+            params.add(afterEventId);
+        }
+        sql.append(" ORDER BY event_id");
+        if (limit != null) {
+            sql.append(" LIMIT ?");
+            params.add(limit);
+        }
+        int[] rowNum = new int[1];
+        jdbcTemplate.query(sql.toString(), rs -> {
+            consumer.accept(eventRowMapper.mapRow(rs, rowNum[0]++));
+        }, params.toArray());
     }
 }
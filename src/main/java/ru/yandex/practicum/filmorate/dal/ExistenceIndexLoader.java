@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.index.ExistenceIndex;
+
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class ExistenceIndexLoader {
+    private final NamedParameterJdbcOperations jdbcOperations;
+    private final ExistenceIndex existenceIndex;
+
+    @PostConstruct
+    public void rebuild() {
+        List<Long> userIds = jdbcOperations.queryForList("SELECT user_id FROM users", Map.of(), Long.class);
+        List<Long> filmIds = jdbcOperations.queryForList("SELECT film_id FROM film", Map.of(), Long.class);
+        existenceIndex.rebuild(userIds, filmIds);
+    }
+}
@@ -3,35 +3,64 @@ package ru.yandex.practicum.filmorate.dal;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.dal.mappers.FilmWithRelationsExtractor;
 import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.ExistenceIndex;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
 import ru.yandex.practicum.filmorate.model.Director;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.RankedFilm;
+import ru.yandex.practicum.filmorate.monitoring.StorageWriteCounters;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Qualifier("filmDbStorage")
 @Repository
 @RequiredArgsConstructor
 public class FilmDbStorage implements FilmStorage {
+    private static final int BATCH_CHUNK_SIZE = 500;
+    private static final int MULTI_ROW_INSERT_SIZE = 100;
+    private static final int LIKES_LOOKUP_SIZE = 1000;
+
     private final NamedParameterJdbcOperations jdbcOperations;
     private final FilmRowMapper filmRowMapper;
+    private final FilmWithRelationsExtractor filmWithRelationsExtractor;
     private final GenreDbStorage genreDbStorage;
     private final DirectorDbStorage directorDbStorage;
     private final MpaDbStorage mpaDbStorage;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final FilmSearchIndex filmSearchIndex;
+    private final LikesMatrix likesMatrix;
+    private final FilmCache filmCache;
+    private final ExistenceIndex existenceIndex;
+    private final StorageWriteCounters writeCounters;
 
 
     @Override
+    @Transactional
     public Film addFilm(Film film) {
         String sql = "INSERT INTO film (name, description, release_date, duration, rating_id) " +
                 "VALUES (:name, :description, :releaseDate, :duration, :ratingId)";
@@ -70,6 +99,11 @@ public class FilmDbStorage implements FilmStorage {
             if (film.getDirectors() != null && !film.getDirectors().isEmpty()) {
                 insertDirectorAndFilms(film);
             }
+            AfterCommit.run(() -> {
+                existenceIndex.addFilm(film.getId());
+                popularFilmsIndex.putFilm(film.getId(), film.getReleaseDate(), genreIdsOf(film.getGenres()));
+                filmSearchIndex.putFilm(film.getId(), film.getName(), directorIdsOf(film.getDirectors()));
+            });
             return film;
         } catch (Exception e) {
             log.error("Произошла непредвиденная ошибка: {}", e.getMessage(), e);
@@ -77,7 +111,72 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
+    // Добавление пачки фильмов для импорта каталога: фильмы, жанры и режиссеры пишутся многострочными INSERT
+    // по MULTI_ROW_INSERT_SIZE строк, id фильмов возвращает тот же INSERT в порядке строк.
+    // Транзакцией управляет вызывающий код, чтобы вместе с пачкой можно было записать отметку прогресса
+    @Override
+    public void addFilms(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        List<Object[]> filmRows = films.stream()
+                .map(film -> new Object[]{film.getName(), film.getDescription(), film.getReleaseDate(),
+                    film.getDuration(), film.getMpa().getId()})
+                .toList();
+        List<Long> filmIds = insertRows("INSERT INTO film (name, description, release_date, duration, rating_id) " +
+                "VALUES ", filmRows, "film_id");
+        List<Object[]> genreRows = new ArrayList<>();
+        List<Object[]> directorRows = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            Film film = films.get(i);
+            film.setId(filmIds.get(i));
+            genreIdsOf(film.getGenres()).forEach(genreId -> genreRows.add(new Object[]{film.getId(), genreId}));
+            directorIdsOf(film.getDirectors())
+                    .forEach(directorId -> directorRows.add(new Object[]{film.getId(), directorId}));
+        }
+        insertRows("INSERT INTO film_genre (film_id, genre_id) VALUES ", genreRows, null);
+        insertRows("INSERT INTO films_directors (film_id, director_id) VALUES ", directorRows, null);
+
+        // Пачка пишется в транзакции вызывающего кода: при откате её фильмы не должны появиться в индексах
+        AfterCommit.run(() -> {
+            for (Film film : films) {
+                existenceIndex.addFilm(film.getId());
+                popularFilmsIndex.putFilm(film.getId(), film.getReleaseDate(), genreIdsOf(film.getGenres()));
+                filmSearchIndex.putFilm(film.getId(), film.getName(), directorIdsOf(film.getDirectors()));
+            }
+        });
+        writeCounters.record("film", "import", films.size());
+    }
+
+    // Многострочный INSERT ... VALUES (?, ?), (?, ?) ... по MULTI_ROW_INSERT_SIZE строк. Если задан keyColumn,
+    // возвращает сгенерированные ключи в порядке строк
+    private List<Long> insertRows(String insert, List<Object[]> rows, String keyColumn) {
+        List<Long> keys = new ArrayList<>(rows.size());
+        JdbcOperations jdbc = jdbcOperations.getJdbcOperations();
+        for (int from = 0; from < rows.size(); from += MULTI_ROW_INSERT_SIZE) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + MULTI_ROW_INSERT_SIZE, rows.size()));
+            String placeholders = "(" + String.join(", ", Collections.nCopies(chunk.get(0).length, "?")) + ")";
+            String sql = insert + String.join(", ", Collections.nCopies(chunk.size(), placeholders));
+            Object[] args = chunk.stream().flatMap(Arrays::stream).toArray();
+            if (keyColumn == null) {
+                jdbc.update(sql, args);
+                continue;
+            }
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbc.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql, new String[]{keyColumn});
+                new ArgumentPreparedStatementSetter(args).setValues(statement);
+                return statement;
+            }, keyHolder);
+            keyHolder.getKeyList().forEach(key -> keys.add(((Number) key.values().iterator().next()).longValue()));
+        }
+        return keys;
+    }
+
+    // Если фильм удалили параллельно после проверки в контроллере, UPDATE не найдёт строку: тогда NotFoundException
+    // откатывает транзакцию, и удалённый фильм не возвращается в индексы. Индексы и кэш меняются после фиксации
     @Override
+    @Transactional
     public Film updateFilm(Film film) {
         String sql = "UPDATE film SET name = :name, description = :description, " +
                 "release_date = :releaseDate, duration = :duration, rating_id = :ratingId " +
@@ -91,17 +190,43 @@ public class FilmDbStorage implements FilmStorage {
         params.put("ratingId", film.getMpa().getId());
         params.put("filmId", film.getId());
 
-        jdbcOperations.update(sql, params);
+        if (jdbcOperations.update(sql, params) == 0) {
+            throw new NotFoundException("Фильм с id = " + film.getId() + " не найден");
+        }
         updateFilmGenres(film.getId(), film.getGenres());
         //обновляем результирующую таблицу
         removeDirectorsFromFilm(film.getId());
         insertDirectorAndFilms(film);
 
         film.setGenres(genreDbStorage.getGenresForFilm(film.getId()));
+        Long filmId = film.getId();
+        LocalDate releaseDate = film.getReleaseDate();
+        List<Long> genreIds = genreIdsOf(film.getGenres());
+        String name = film.getName();
+        List<Integer> directorIds = directorIdsOf(film.getDirectors());
+        AfterCommit.run(() -> {
+            filmCache.invalidate(filmId);
+            popularFilmsIndex.putFilm(filmId, releaseDate, genreIds);
+            filmSearchIndex.putFilm(filmId, name, directorIds);
+        });
 
         return film;
     }
 
+    private List<Integer> directorIdsOf(List<Director> directors) {
+        if (directors == null) {
+            return List.of();
+        }
+        return directors.stream().map(Director::getId).distinct().toList();
+    }
+
+    private List<Long> genreIdsOf(List<Genre> genres) {
+        if (genres == null) {
+            return List.of();
+        }
+        return genres.stream().map(Genre::getId).distinct().toList();
+    }
+
     private void insertDirectorAndFilms(Film film) {
         // Вставка режиссеров
         if (film.getDirectors() != null && !film.getDirectors().isEmpty()) {
@@ -120,24 +245,14 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
+    // Как и при выгрузке потоком, в кэш фильмы не кладутся: полный список вытеснил бы из него горячие записи
+    // и копировал бы весь каталог при каждом вызове
     @Override
     public List<Film> getAllFilms() {
-        String sql = "SELECT f.*, mr.rating_mpa " +
-                "FROM film f " +
-                "JOIN mpa_rating mr ON f.rating_id = mr.rating_id";
+        String sql = "SELECT f.* FROM film f";
         try {
             List<Film> films = jdbcOperations.query(sql, new HashMap<>(), filmRowMapper);
-            List<Long> filmIds = films.stream().map(Film::getId).collect(Collectors.toList());
-
-            Map<Long, Set<Genre>> filmGenresMap = genreDbStorage.getGenresForFilms(filmIds);
-            Map<Long, Set<Director>> filmDirectorsMap = directorDbStorage.getDirectorsForFilms(filmIds);
-
-            for (Film film : films) {
-                Long filmId = film.getId();
-                film.setGenres(new ArrayList<>(filmGenresMap.getOrDefault(filmId, Set.of())));
-                film.setDirectors(new ArrayList<>(filmDirectorsMap.getOrDefault(filmId, Set.of())));
-            }
-
+            attachRelations(films);
             return films;
         } catch (EmptyResultDataAccessException e) {
             log.info("Фильмы не найдены");
@@ -145,173 +260,315 @@ public class FilmDbStorage implements FilmStorage {
         }
     }
 
+    // Выгрузка каталога без сборки общего списка: строки читаются курсором с fetch size, жанры и режиссеры
+    // догружаются пачками по BATCH_CHUNK_SIZE фильмов, и каждая пачка сразу уходит потребителю.
+    // В кэш фильмы не кладутся, чтобы полный проход не вытеснил из него горячие записи.
+    // Транзакция держит курсор и догрузку пачек на одном соединении: иначе каждая выгрузка занимает два
+    // соединения из пула, и одновременные выгрузки по числу соединений ждут друг друга до таймаута пула
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllFilms(Consumer<Film> consumer) {
+        List<Film> batch = new ArrayList<>(BATCH_CHUNK_SIZE);
+        int[] rowNum = new int[1];
+        jdbcOperations.getJdbcOperations().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("SELECT f.* FROM film f ORDER BY f.film_id");
+            statement.setFetchSize(BATCH_CHUNK_SIZE);
+            return statement;
+        }, rs -> {
+            batch.add(filmRowMapper.mapRow(rs, rowNum[0]++));
+            if (batch.size() == BATCH_CHUNK_SIZE) {
+                emitBatch(batch, consumer);
+            }
+        });
+        emitBatch(batch, consumer);
+    }
+
+    // Страница каталога в порядке film_id: id выбираются по первичному ключу, сами фильмы загружаются через кэш
+    @Override
+    public List<Film> getFilmsPage(Long afterId, int limit) {
+        String sql = "SELECT film_id FROM film WHERE film_id > :afterId ORDER BY film_id LIMIT :limit";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterId", afterId != null ? afterId : 0L)
+                .addValue("limit", limit);
+        return getFilmsByIds(jdbcOperations.queryForList(sql, params, Long.class));
+    }
 
+    private void emitBatch(List<Film> batch, Consumer<Film> consumer) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        attachRelations(batch);
+        batch.forEach(consumer);
+        batch.clear();
+    }
+
+    // Жанры и режиссеры для пачки фильмов двумя запросами с IN вместо запросов на каждый фильм
+    private void attachRelations(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        List<Long> filmIds = films.stream().map(Film::getId).toList();
+        Map<Long, Set<Genre>> filmGenresMap = genreDbStorage.getGenresForFilms(filmIds);
+        Map<Long, Set<Director>> filmDirectorsMap = directorDbStorage.getDirectorsForFilms(filmIds);
+        for (Film film : films) {
+            film.setGenres(new ArrayList<>(filmGenresMap.getOrDefault(film.getId(), Set.of())));
+            film.setDirectors(new ArrayList<>(filmDirectorsMap.getOrDefault(film.getId(), Set.of())));
+        }
+    }
 
     @Override
+    @Transactional
     public void addLike(Long filmId, Long userId) {
-        String sql = "MERGE INTO film_likes (film_id, user_id) KEY(film_id, user_id) VALUES (:filmId, :userId)";
+        // Вставляем лайк только если его ещё нет, чтобы счётчик менялся ровно на число вставленных строк
+        String sql = "INSERT INTO film_likes (film_id, user_id) SELECT :filmId, :userId " +
+                "WHERE NOT EXISTS (SELECT 1 FROM film_likes WHERE film_id = :filmId AND user_id = :userId)";
         Map<String, Object> params = new HashMap<>();
         params.put("filmId", filmId);
         params.put("userId", userId);
-        jdbcOperations.update(sql, params);
+        int inserted;
+        try {
+            inserted = jdbcOperations.update(sql, params);
+        } catch (DuplicateKeyException e) {
+            log.debug("Лайк пользователя {} фильму {} уже поставлен параллельным запросом", userId, filmId);
+            inserted = 0;
+        }
+        if (inserted > 0) {
+            int delta = inserted;
+            changeLikesCount(filmId, delta);
+            AfterCommit.run(() -> {
+                popularFilmsIndex.changeLikes(filmId, delta);
+                likesMatrix.addLike(filmId, userId);
+            });
+            writeCounters.record("like", "add", inserted);
+        }
+    }
+
+    // Пачка лайков: уже существующие пары читаются по первичному ключу одним запросом на LIKES_LOOKUP_SIZE пар,
+    // новые вставляются многострочными INSERT без условий, счётчики фильмов обновляются пакетом по строке
+    // на фильм. Повтор пары внутри пачки вставляется один раз. Если параллельный одиночный лайк вставит ту же
+    // пару между чтением и вставкой, пачка откатится целиком с DuplicateKeyException, и вызывающий её повторит.
+    // Индексы в памяти меняются только после фиксации
+    @Override
+    @Transactional
+    public int[] addLikes(List<FilmLike> likes) {
+        int[] inserted = new int[likes.size()];
+        if (likes.isEmpty()) {
+            return inserted;
+        }
+        Set<FilmLike> existing = findExistingLikes(likes);
+        Set<FilmLike> added = new HashSet<>();
+        List<Object[]> rows = new ArrayList<>();
+        // TreeMap: фильмы обновляются в одном порядке, и встречные пачки не блокируют друг друга
+        Map<Long, Integer> deltas = new TreeMap<>();
+        for (int i = 0; i < likes.size(); i++) {
+            FilmLike like = likes.get(i);
+            if (!existing.contains(like) && added.add(like)) {
+                inserted[i] = 1;
+                rows.add(new Object[]{like.getFilmId(), like.getUserId()});
+                deltas.merge(like.getFilmId(), 1, Integer::sum);
+            }
+        }
+        if (rows.isEmpty()) {
+            return inserted;
+        }
+        insertRows("INSERT INTO film_likes (film_id, user_id) VALUES ", rows, null);
+        MapSqlParameterSource[] updates = deltas.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("delta", entry.getValue())
+                        .addValue("filmId", entry.getKey()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcOperations.batchUpdate("UPDATE film SET likes_count = likes_count + :delta WHERE film_id = :filmId",
+                updates);
+
+        AfterCommit.run(() -> {
+            deltas.forEach(popularFilmsIndex::changeLikes);
+            added.forEach(like -> likesMatrix.addLike(like.getFilmId(), like.getUserId()));
+        });
+        writeCounters.record("like", "add", rows.size());
+        return inserted;
+    }
+
+    private Set<FilmLike> findExistingLikes(List<FilmLike> likes) {
+        Set<FilmLike> existing = new HashSet<>();
+        for (int from = 0; from < likes.size(); from += LIKES_LOOKUP_SIZE) {
+            List<FilmLike> chunk = likes.subList(from, Math.min(from + LIKES_LOOKUP_SIZE, likes.size()));
+            String sql = "SELECT film_id, user_id FROM film_likes WHERE (film_id, user_id) IN (" +
+                    String.join(", ", Collections.nCopies(chunk.size(), "(?, ?)")) + ")";
+            Object[] args = chunk.stream()
+                    .flatMap(like -> Stream.of(like.getFilmId(), like.getUserId()))
+                    .toArray();
+            jdbcOperations.getJdbcOperations().query(sql, rs -> {
+                existing.add(new FilmLike(rs.getLong("film_id"), rs.getLong("user_id")));
+            }, args);
+        }
+        return existing;
     }
 
     @Override
+    @Transactional
     public void removeLike(Long filmId, Long userId) {
         String sql = "DELETE FROM film_likes WHERE film_id = :filmId AND user_id = :userId";
         Map<String, Object> params = new HashMap<>();
         params.put("filmId", filmId);
         params.put("userId", userId);
+        int deleted = jdbcOperations.update(sql, params);
+        if (deleted > 0) {
+            int delta = -deleted;
+            changeLikesCount(filmId, delta);
+            AfterCommit.run(() -> {
+                popularFilmsIndex.changeLikes(filmId, delta);
+                likesMatrix.removeLike(filmId, userId);
+            });
+            writeCounters.record("like", "remove", deleted);
+        }
+    }
+
+    private void changeLikesCount(Long filmId, int delta) {
+        String sql = "UPDATE film SET likes_count = likes_count + :delta WHERE film_id = :filmId";
+        Map<String, Object> params = new HashMap<>();
+        params.put("delta", delta);
+        params.put("filmId", filmId);
         jdbcOperations.update(sql, params);
     }
 
     @Override
     public Film getFilmById(Long filmId) {
-        String sql = "SELECT f.*, mr.rating_mpa " +
+        Film cached = filmCache.get(filmId);
+        if (cached != null) {
+            return cached;
+        }
+        long cacheVersion = filmCache.version();
+        // Фильм, рейтинг, жанры и режиссеры загружаются одним запросом
+        String sql = "SELECT f.*, " +
+                "g.genre_id AS genre_id, g.genre AS genre_name, " +
+                "d.director_id AS director_id, d.name AS director_name " +
                 "FROM film f " +
-                "JOIN mpa_rating mr ON f.rating_id = mr.rating_id " +
-                "WHERE f.film_id = :filmId";
+                "LEFT JOIN film_genre fg ON f.film_id = fg.film_id " +
+                "LEFT JOIN genres g ON fg.genre_id = g.genre_id " +
+                "LEFT JOIN films_directors fd ON f.film_id = fd.film_id " +
+                "LEFT JOIN directors d ON fd.director_id = d.director_id " +
+                "WHERE f.film_id = :filmId " +
+                "ORDER BY g.genre_id, d.director_id";
         Map<String, Object> params = new HashMap<>();
         params.put("filmId", filmId);
 
-        try {
-            // Получаем фильм
-            Film film = jdbcOperations.queryForObject(sql, params, filmRowMapper);
-
-            // Получаем жанры фильма
-            film.setGenres(genreDbStorage.getGenresForFilm(filmId));
-
-            // Получаем список режиссеров фильма
-            String directorsSql = "SELECT d.director_id, d.name " +
-                    "FROM directors d " +
-                    "JOIN films_directors fd ON d.director_id = fd.director_id " +
-                    "WHERE fd.film_id = :filmId";
-            Map<String, Object> directorParams = new HashMap<>();
-            directorParams.put("filmId", filmId);
-            List<Director> directors = jdbcOperations.query(directorsSql, directorParams, (rs, rowNum) -> {
-                Director director = new Director();
-                director.setId(rs.getInt("director_id"));
-                director.setName(rs.getString("name"));
-                return director;
-            });
-
-            film.setDirectors(directorDbStorage.getDirectorsForFilm(film.getId()));
-            return film;
-        } catch (EmptyResultDataAccessException e) {
+        List<Film> films = jdbcOperations.query(sql, params, filmWithRelationsExtractor);
+        if (films == null || films.isEmpty()) {
             log.info("Фильм с id = {} не найден", filmId);
             return null;
         }
+        filmCache.put(films.get(0), cacheVersion);
+        return films.get(0);
     }
 
 
+    @Override
+    public boolean existsById(Long filmId) {
+        return existenceIndex.filmExists(filmId);
+    }
+
     @Override
     public List<Film> getTopFilms(int count, Long genreId, Integer year) {
-        String sql = "SELECT f.*, mr.rating_mpa, COUNT(fl.user_id) AS likes_count " +
-                "FROM film f " +
-                "LEFT JOIN film_likes fl ON f.film_id = fl.film_id " +
-                "JOIN mpa_rating mr ON f.rating_id = mr.rating_id " +
-                (genreId != null ? "JOIN film_genre fg ON f.film_id = fg.film_id " : "") +
-                "WHERE 1=1 " +
-                (genreId != null ? "AND fg.genre_id = :genreId " : "") +
-                (year != null ? "AND YEAR(f.release_date) = :year " : "") +
-                "GROUP BY f.film_id " +
-                "ORDER BY likes_count DESC " +
-                "LIMIT :count";
-        Map<String, Object> params = new HashMap<>();
-        params.put("count", count);
-        if (genreId != null) {
-            params.put("genreId", genreId);
+        // Порядок и фильтрация берутся из индекса популярных, из БД догружаются только сами фильмы
+        List<Long> filmIds = popularFilmsIndex.getTop(count, genreId, year);
+        return getFilmsByIds(filmIds);
+    }
+
+    @Override
+    public List<Film> getFilmsByIds(Collection<Long> filmIds) {
+        // Порядок результата совпадает с порядком переданных id, повторы и несуществующие id отбрасываются
+        List<Long> orderedIds = filmIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        long cacheVersion = filmCache.version();
+        Map<Long, Film> filmsById = new HashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long filmId : orderedIds) {
+            Film cached = filmCache.get(filmId);
+            if (cached != null) {
+                filmsById.put(filmId, cached);
+            } else {
+                missingIds.add(filmId);
+            }
+        }
+        for (int from = 0; from < missingIds.size(); from += BATCH_CHUNK_SIZE) {
+            List<Long> chunk = missingIds.subList(from, Math.min(from + BATCH_CHUNK_SIZE, missingIds.size()));
+            loadFilmsChunk(chunk, filmsById, cacheVersion);
         }
-        if (year != null) {
-            params.put("year", year);
+        List<Film> films = new ArrayList<>(filmsById.size());
+        for (Long filmId : orderedIds) {
+            Film film = filmsById.get(filmId);
+            if (film != null) {
+                films.add(film);
+            }
         }
+        return films;
+    }
 
+    private void loadFilmsChunk(List<Long> filmIds, Map<Long, Film> filmsById, long cacheVersion) {
+        String sql = "SELECT f.* FROM film f WHERE f.film_id IN (:filmIds)";
+        MapSqlParameterSource params = new MapSqlParameterSource("filmIds", filmIds);
         List<Film> films = jdbcOperations.query(sql, params, filmRowMapper);
-        List<Long> filmIds = films.stream().map(Film::getId).toList();
-
-        Map<Long, Set<Genre>> filmGenresMap = genreDbStorage.getGenresForFilms(filmIds);
-        Map<Long, Set<Director>> filmDirectorsMap = directorDbStorage.getDirectorsForFilms(filmIds);
-
+        attachRelations(films);
         for (Film film : films) {
-            film.setGenres(new ArrayList<>(filmGenresMap.getOrDefault(film.getId(), Set.of())));
-            film.setDirectors(new ArrayList<>(filmDirectorsMap.getOrDefault(film.getId(), Set.of())));
-
+            filmsById.put(film.getId(), film);
+            filmCache.put(film, cacheVersion);
         }
-
-        return films;
-
-
     }
 
     @Override
     public List<Film> getFilmsByDirector(Integer directorId, String sortBy) {
-        log.info("Запущен метод по получению фильмов режиссера с id = {}", directorId);
+        return getFilmsByDirectorPage(directorId, sortBy, null, null).stream()
+                .map(RankedFilm::film)
+                .toList();
+    }
 
-        if (!isDirectorExist(directorId)) {
-            log.warn("Режиссер с id = {} не найден", directorId);
-            throw new NotFoundException("Режиссер с id " + directorId + " не найден");
+    // Фильмы режиссера одним запросом: отбор по индексу films_directors(director_id), сортировка и условие курсора
+    // в БД, строки фильмов читаются тем же запросом, жанры и режиссеры догружаются пакетно - всего три запроса.
+    // Существование режиссера проверяется только при пустом результате: раз фильмы нашлись, режиссер есть.
+    // Ключ курсора: для year - дата выхода в днях от эпохи и id, для likes - счётчик лайков и id.
+    // Другого значения sortBy быть не может, проверка в контроллере
+    @Override
+    public List<RankedFilm> getFilmsByDirectorPage(Integer directorId, String sortBy, long[] after, Integer limit) {
+        log.info("Запущен метод по получению фильмов режиссера с id = {}", directorId);
+        boolean byYear = sortBy.equals("year");
+        StringBuilder sql = new StringBuilder("SELECT f.* FROM films_directors fd " +
+                "JOIN film f ON f.film_id = fd.film_id " +
+                "WHERE fd.director_id = :directorId");
+        MapSqlParameterSource params = new MapSqlParameterSource("directorId", directorId);
+        if (after != null) {
+            if (byYear) {
+                sql.append(" AND f.release_date >= :afterDate AND (f.release_date > :afterDate OR f.film_id > :afterId)");
+                params.addValue("afterDate", LocalDate.ofEpochDay(after[0]));
+            } else {
+                sql.append(" AND f.likes_count <= :afterLikes AND (f.likes_count < :afterLikes OR f.film_id > :afterId)");
+                params.addValue("afterLikes", after[0]);
+            }
+            params.addValue("afterId", after[1]);
         }
-        String sqlFilmsByYear = "SELECT fd.director_id, fd.film_id " +
-                "FROM films_directors as fd " +
-                "WHERE fd.director_id = :director_id";
-        MapSqlParameterSource namedParameters = new MapSqlParameterSource("director_id", directorId);
-        log.info("Вот такой передаётся запрос: {}", sqlFilmsByYear);
-        List<Integer> filmsIds = jdbcOperations.query(sqlFilmsByYear, namedParameters, (rs, rowNum) -> {
-            return rs.getInt("film_id");
+        sql.append(byYear ? " ORDER BY f.release_date, f.film_id" : " ORDER BY f.likes_count DESC, f.film_id");
+        if (limit != null) {
+            sql.append(" LIMIT :limit");
+            params.addValue("limit", limit);
+        }
+        long cacheVersion = filmCache.version();
+        List<RankedFilm> rows = jdbcOperations.query(sql.toString(), params, (rs, rowNum) -> {
+            Film film = filmRowMapper.mapRow(rs, rowNum);
+            long key = byYear ? film.getReleaseDate().toEpochDay() : rs.getInt("likes_count");
+            return new RankedFilm(film, new long[]{key, film.getId()});
         });
-        log.info("Списки айдишников: {}", filmsIds);
-        log.info("Попытка получить список всех фильмов:");
-        List<Film> films = getFilmsById(filmsIds);
-        log.info("Тот метод отработал");
-        log.info("Его результаты(неотсортированные фильмы): {}", films);
-        //Сортирока по году
-        if (sortBy.equals("year")) {
-            films = films.stream()
-                    .sorted(Comparator.comparing(Film::getReleaseDate))  // Сортировка по дате релиза
-                    .collect(Collectors.toList());
-            log.info("Отсортированные фильмы: {}", films);
-            return films;
-        } else {
-            //Сортировка по лайкам
-            //Другого значение в softBY не может быть. Проверка в фильм контроллере
-            log.info("Попытка получить количество лайков для фильмов");
-            // Получаем количество лайков для каждого фильма
-            String sqlLikesCount = "SELECT film_id, COUNT(*) AS like_count " +
-                    "FROM film_likes " +
-                    "WHERE film_id IN (:filmIds) " +
-                    "GROUP BY film_id";
-
-            MapSqlParameterSource likeParams = new MapSqlParameterSource("filmIds", filmsIds);
-            List<Map<String, Object>> likesResult = jdbcOperations.queryForList(sqlLikesCount, likeParams);
-
-            // Создаём мапу для фильмов и их количества лайков
-            Map<Integer, Integer> filmLikesMap = new HashMap<>();
-            for (Map<String, Object> like : likesResult) {
-                Integer filmId = (Integer) like.get("film_id");
-                Integer likeCount = ((Long) like.get("like_count")).intValue();
-                filmLikesMap.put(filmId, likeCount);
+        if (rows.isEmpty()) {
+            if (!isDirectorExist(directorId)) {
+                log.warn("Режиссер с id = {} не найден", directorId);
+                throw new NotFoundException("Режиссер с id " + directorId + " не найден");
             }
-
-            // Сортируем фильмы по количеству лайков
-            films = films.stream()
-                    .sorted((film1, film2) -> Integer.compare(filmLikesMap.getOrDefault(film2.getId().intValue(), 0),
-                            filmLikesMap.getOrDefault(film1.getId().intValue(), 0)))  // Сортировка по убыванию лайков
-                    .collect(Collectors.toList());
-            log.info("Отсортированные фильмы по лайкам: {}", films);
-            return films;
+            return rows;
         }
-    }
-
-    //вспомогательный метод
-    private List<Film> getFilmsById(List<Integer> filmsIds) {
-        log.info("Запущен метод по получению всех фильмов по множественным id");
-        List<Film> films = new ArrayList<>();
-        for (Integer id : filmsIds) {
-            films.add(getFilmById(Long.valueOf(id)));
-        }
-        log.info("Список всех фильмов: {}", films);
-        // Получаем список фильмов
-        return films;
+        List<Film> films = rows.stream().map(RankedFilm::film).toList();
+        attachRelations(films);
+        films.forEach(film -> filmCache.put(film, cacheVersion));
+        return rows;
     }
 
     private void updateFilmGenres(Long filmId, List<Genre> genres) {
@@ -343,153 +600,48 @@ public class FilmDbStorage implements FilmStorage {
 
     @Override
     public List<Film> getCommonFilms(Long userId, Long friendId) {
-        String sql = "SELECT f.*, COALESCE(fl.likes_count, 0) AS likes_count, mr.rating_mpa " +
-                "FROM film f " +
-                "JOIN film_likes l1 ON f.film_id = l1.film_id " +
-                "JOIN film_likes l2 ON f.film_id = l2.film_id " +
-                "LEFT JOIN (" +
-                "    SELECT film_id, COUNT(*) AS likes_count " +
-                "    FROM film_likes " +
-                "    GROUP BY film_id" +
-                ") fl ON f.film_id = fl.film_id " +
-                "JOIN MPA_RATING mr ON f.rating_id = mr.rating_id " +
-                "WHERE l1.user_id = :userId " +
-                "AND l2.user_id = :friendId " +
-                "ORDER BY likes_count DESC";
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("userId", userId)
-                .addValue("friendId", friendId);
-        try {
-            List<Film> films = jdbcOperations.query(sql, params, filmRowMapper);
-
-            for (Film film : films) {
-                film.setGenres(genreDbStorage.getGenresForFilm(film.getId()));
-            }
-            return films;
-        } catch (Exception e) {
-            log.error("Ошибка при выполнении SQL-запроса: ", e);
-            throw e;
+        // Общие лайки - пересечение отсортированных массивов двух пользователей в матрице лайков, порядок -
+        // по счётчикам индекса популярных, поэтому время зависит от числа лайков этих пользователей, а не от размера
+        // film_likes. Из БД догружаются только сами фильмы, пакетно и через кэш
+        int[] common = likesMatrix.getCommonLikedFilms(userId, friendId);
+        // Ключ сортировки: инвертированное число лайков в старших битах, id фильма в младших
+        long[] ranked = new long[common.length];
+        for (int i = 0; i < common.length; i++) {
+            ranked[i] = (long) (Integer.MAX_VALUE - popularFilmsIndex.getLikes((long) common[i])) << 32 | common[i];
         }
+        Arrays.sort(ranked);
+        return getFilmsByIds(Arrays.stream(ranked).map(key -> key & 0xFFFFFFFFL).boxed().toList());
     }
 
     @Override
     public List<Film> getSearchedFilms(String query, String[] searchColumns) {
         log.info("Вызван метод в хранилище по желаемых фильмов");
-        //сразу создаём корректную подстроку для поиска
-        //String searchPattern = "%" + query + "%";
-        String searchPattern = "%" + query.toLowerCase() + "%";
-        List<Integer> filmsIds = new ArrayList<>();
-        //если параметр один
-        if (searchColumns.length == 1) {
-            String searchWord = searchColumns[0];
-            filmsIds = getIdsByOneParameter(searchPattern, searchWord);
-        } else if (searchColumns.length == 2) {
-            filmsIds = getIdsByTwoParameter(searchPattern, searchColumns);
-        }
-        if (filmsIds.isEmpty()) {
+        Set<String> columns = Arrays.stream(searchColumns).map(String::trim).collect(Collectors.toSet());
+        // Кандидаты ищутся в поисковом индексе, сортировка - по счётчикам лайков из индекса популярных
+        Set<Long> foundIds = filmSearchIndex.search(query, columns.contains("title"), columns.contains("director"));
+        if (foundIds.isEmpty()) {
             log.info("Не точный запрос: Не найдено фильмов под требуемым параметрам");
             return List.of();
         }
-        //Получили айдишники фильмов. Переходим к сортировке
-        log.info("Попытка получить список всех найденных фильмов:");
-        List<Film> films = getFilmsById(filmsIds);
-        log.info("Результаты в методе searchedFilms(неотсортированные фильмы): {}", films);
-        //Сортировка по лайкам
-        log.info("Попытка получить количество лайков для фильмов");
-        // Получаем количество лайков для каждого фильма
-        String sqlLikesCount = "SELECT film_id, COUNT(*) AS like_count " +
-                "FROM film_likes " +
-                "WHERE LOWER(film_id) IN (:filmIds) " +
-                "GROUP BY film_id";
-        MapSqlParameterSource likeParams = new MapSqlParameterSource("filmIds", filmsIds);
-        List<Map<String, Object>> likesResult = jdbcOperations.queryForList(sqlLikesCount, likeParams);
-        // Создаём мапу для фильмов и их количества лайков
-        Map<Integer, Integer> filmLikesMap = new HashMap<>();
-        for (Map<String, Object> like : likesResult) {
-            Integer filmId = (Integer) like.get("film_id");
-            Integer likeCount = ((Long) like.get("like_count")).intValue();
-            filmLikesMap.put(filmId, likeCount);
-        }
-        // Сортируем фильмы по количеству лайков
-        films = films.stream()
-                .sorted((film1, film2) -> Integer.compare(filmLikesMap.getOrDefault(film2.getId().intValue(), 0),
-                        filmLikesMap.getOrDefault(film1.getId().intValue(), 0)))  // Сортировка по убыванию лайков
-                .collect(Collectors.toList());
+        List<Long> rankedIds = foundIds.stream()
+                .sorted(Comparator.comparingInt(popularFilmsIndex::getLikes).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .toList();
+        List<Film> films = getFilmsByIds(rankedIds);
         log.info("Отсортированные фильмы по лайкам: {}", films);
         return films;
     }
 
-    //ищем по одной из таблиц
-    private List<Integer> getIdsByOneParameter(String searchPattern, String searchColumn) {
-        if (searchColumn.equals("title")) {
-            String sqlQuery = "SELECT film_id FROM film WHERE LOWER(name) LIKE LOWER(:searchPattern)";
-            MapSqlParameterSource namedParameters = new MapSqlParameterSource("searchPattern", searchPattern);
-            List<Integer> filmsIds = jdbcOperations.query(sqlQuery, namedParameters, (rs, rowNum) -> {
-                return rs.getInt("film_id");
-            });
-            log.info("Найденные ID фильмов: {}", filmsIds);
-            return filmsIds;
-        }
-        if (searchColumn.equals("director")) {
-            log.info("Получаем списки режиссеров, которые соответствуют подстроке {}", searchPattern);
-            String sqlDirectorQuery = "SELECT director_id FROM directors WHERE name LIKE :searchPattern";
-            MapSqlParameterSource namedParameters = new MapSqlParameterSource("searchPattern", searchPattern);
-            List<Integer> directorIds = jdbcOperations.query(sqlDirectorQuery, namedParameters,
-                    (rs, rowNum) -> rs.getInt("director_id"));
-            log.info("Айди режиссеров, имя которых соответствует переданной подстроке: {}", directorIds);
-            if (directorIds.isEmpty()) {
-                log.info("Не найдено режиссёров по запросу: {}", searchPattern);
-                return Collections.emptyList();
-            }
-            String sqlFilmsQuery = "SELECT film_id FROM films_directors WHERE director_id IN (:directorIds)";
-            MapSqlParameterSource filmParams = new MapSqlParameterSource("directorIds", directorIds);
-            List<Integer> filmsIds = jdbcOperations.query(sqlFilmsQuery, filmParams, (rs, rowNum) -> rs.getInt("film_id"));
-
-            log.info("Найденные ID фильмов по режиссёру: {}", filmsIds);
-            return filmsIds;
-        }
-        return Collections.emptyList();
-    }
-
-    //ищем сразу по двум таблицам, удаляем дубликаты
-    private List<Integer> getIdsByTwoParameter(String searchPattern, String[] searchColumns) {
-        // Инициализация переменных для хранения результатов
-        List<Integer> filmsIdsByTitle = new ArrayList<>();
-        List<Integer> filmsIdsByDirector = new ArrayList<>();
-
-        // Проверка и обработка параметра "title"
-        if (Arrays.asList(searchColumns).contains("title")) {
-            String sqlTitleQuery = "SELECT film_id FROM film WHERE LOWER(name) LIKE LOWER(:searchPattern)";
-            MapSqlParameterSource namedParameters = new MapSqlParameterSource("searchPattern", searchPattern);
-            filmsIdsByTitle = jdbcOperations.query(sqlTitleQuery, namedParameters, (rs, rowNum) -> rs.getInt("film_id"));
-            log.info("Найденные фильмы по названию: {}", filmsIdsByTitle);
-        }
-        // Проверка и обработка параметра "director"
-        if (Arrays.asList(searchColumns).contains("director")) {
-            log.info("Ищем фильмы по режиссёру");
-            String sqlDirectorQuery = "SELECT director_id FROM directors WHERE name LIKE :searchPattern";
-            MapSqlParameterSource namedParameters = new MapSqlParameterSource("searchPattern", searchPattern);
-            List<Integer> directorIds = jdbcOperations.query(sqlDirectorQuery, namedParameters,
-                    (rs, rowNum) -> rs.getInt("director_id"));
-
-            if (!directorIds.isEmpty()) {
-                // Ищем фильмы, связанные с найденными режиссёрами
-                String sqlFilmsQuery = "SELECT film_id FROM films_directors WHERE director_id IN (:directorIds)";
-                MapSqlParameterSource filmParams = new MapSqlParameterSource("directorIds", directorIds);
-                filmsIdsByDirector = jdbcOperations.query(sqlFilmsQuery, filmParams, (rs, rowNum) -> rs.getInt("film_id"));
-                log.info("Найденные фильмы по режиссёрам: {}", filmsIdsByDirector);
-            }
-        }
-        // Объединяем результаты, убираем дубликаты и возвращаем
-        filmsIdsByTitle.addAll(filmsIdsByDirector);
-        return filmsIdsByTitle.stream().distinct().collect(Collectors.toList());
-    }
-
     @Override
     public void deleteFilm(Long filmId) {
         String sql = "DELETE FROM film WHERE film_id = :filmId";
         MapSqlParameterSource params = new MapSqlParameterSource().addValue("filmId", filmId);
         jdbcOperations.update(sql, params);
+        filmCache.invalidate(filmId);
+        existenceIndex.removeFilm(filmId);
+        popularFilmsIndex.removeFilm(filmId);
+        filmSearchIndex.removeFilm(filmId);
+        likesMatrix.removeFilm(filmId);
     }
 
     public void removeDirectorsFromFilm(Long filmId) {
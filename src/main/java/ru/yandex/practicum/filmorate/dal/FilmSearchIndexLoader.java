@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+@Repository
+@RequiredArgsConstructor
+public class FilmSearchIndexLoader {
+    private final NamedParameterJdbcOperations jdbcOperations;
+    private final FilmSearchIndex filmSearchIndex;
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Long, String> titles = new HashMap<>();
+        jdbcOperations.query("SELECT film_id, name FROM film", Map.of(), rs -> {
+            titles.put(rs.getLong("film_id"), rs.getString("name"));
+        });
+        Map<Integer, String> directors = new HashMap<>();
+        jdbcOperations.query("SELECT director_id, name FROM directors", Map.of(), rs -> {
+            directors.put(rs.getInt("director_id"), rs.getString("name"));
+        });
+        Map<Long, Set<Integer>> filmDirectors = new HashMap<>();
+        jdbcOperations.query("SELECT film_id, director_id FROM films_directors", Map.of(), rs -> {
+            filmDirectors.computeIfAbsent(rs.getLong("film_id"), k -> new HashSet<>()).add(rs.getInt("director_id"));
+        });
+        filmSearchIndex.rebuild(titles, directors, filmDirectors);
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Repository
+@RequiredArgsConstructor
+public class FriendGraphLoader {
+    // Не больше потоков, чем соединений, которые не жалко занять на время старта
+    private static final int MAX_PARALLELISM = 4;
+
+    private final NamedParameterJdbcOperations jdbcOperations;
+    private final FriendGraph friendGraph;
+
+    // FRIENDS читается диапазонами user_id параллельно. Строки идут в порядке первичного ключа (user_id, friend_id),
+    // поэтому массив друзей каждого пользователя собирается уже отсортированным. Диапазоны читает собственный пул
+    // не больше чем из MAX_PARALLELISM потоков, а не общий ForkJoinPool: блокирующие запросы к БД не должны
+    // занимать потоки, на которых работают параллельные стримы остального приложения
+    @PostConstruct
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        Map<String, Object> bounds = jdbcOperations.queryForMap(
+                "SELECT COALESCE(MIN(user_id), 0) AS min_id, COALESCE(MAX(user_id), -1) AS max_id FROM friends",
+                Map.of());
+        long minId = ((Number) bounds.get("min_id")).longValue();
+        long maxId = ((Number) bounds.get("max_id")).longValue();
+        int parts = (int) Math.max(1, Math.min(Math.min(Runtime.getRuntime().availableProcessors(), MAX_PARALLELISM),
+                maxId - minId + 1));
+        long step = (maxId - minId + parts) / parts;
+        Map<Long, long[]> friendsByUser = new HashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parts);
+        try {
+            List<Future<Map<Long, long[]>>> ranges = new ArrayList<>();
+            for (int part = 0; part < parts; part++) {
+                long from = minId + part * step;
+                ranges.add(executor.submit(() -> loadRange(from, from + step - 1)));
+            }
+            for (Future<Map<Long, long[]>> range : ranges) {
+                friendsByUser.putAll(range.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Построение графа друзей прервано", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка при построении графа друзей", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        friendGraph.rebuild(friendsByUser, System.currentTimeMillis() - start);
+    }
+
+    private Map<Long, long[]> loadRange(long fromUserId, long toUserId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", fromUserId)
+                .addValue("to", toUserId);
+        AdjacencyCollector collector = new AdjacencyCollector();
+        jdbcOperations.query("SELECT user_id, friend_id FROM friends WHERE user_id BETWEEN :from AND :to " +
+                "ORDER BY user_id, friend_id", params, collector);
+        collector.flush();
+        return collector.friendsByUser;
+    }
+
+    // Копит друзей текущего пользователя в растущем буфере и при смене user_id сохраняет массив точного размера
+    private static class AdjacencyCollector implements RowCallbackHandler {
+        private final Map<Long, long[]> friendsByUser = new HashMap<>();
+        private long[] buffer = new long[16];
+        private int size;
+        private long userId = -1;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long rowUserId = rs.getLong("user_id");
+            if (rowUserId != userId) {
+                flush();
+                userId = rowUserId;
+            }
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = rs.getLong("friend_id");
+        }
+
+        void flush() {
+            if (size > 0) {
+                friendsByUser.put(userId, Arrays.copyOf(buffer, size));
+                size = 0;
+            }
+        }
+    }
+}
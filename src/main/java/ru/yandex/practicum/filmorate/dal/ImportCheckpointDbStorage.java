@@ -0,0 +1,46 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.ImportCheckpoint;
+import ru.yandex.practicum.filmorate.storage.ImportCheckpointStorage;
+
+@Repository
+@RequiredArgsConstructor
+public class ImportCheckpointDbStorage implements ImportCheckpointStorage {
+    private final NamedParameterJdbcOperations jdbcOperations;
+
+    // Возвращает отметку импорта, при первом запуске создаёт пустую
+    @Override
+    public ImportCheckpoint startImport(String importId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("importId", importId);
+        // MERGE по одному столбцу ключа не трогает счётчики уже существующей отметки
+        jdbcOperations.update("MERGE INTO film_import_checkpoint (import_id) KEY (import_id) VALUES (:importId)",
+                params);
+        return jdbcOperations.queryForObject("SELECT * FROM film_import_checkpoint WHERE import_id = :importId",
+                params, (rs, rowNum) -> new ImportCheckpoint(
+                        rs.getString("import_id"),
+                        rs.getLong("records_done"),
+                        rs.getLong("imported"),
+                        rs.getLong("rejected"),
+                        rs.getBoolean("completed")));
+    }
+
+    // Сдвигает отметку, только если её не сдвинул параллельный запуск того же импорта
+    @Override
+    public boolean advance(ImportCheckpoint checkpoint, long previousRecordsDone) {
+        String sql = "UPDATE film_import_checkpoint SET records_done = :recordsDone, imported = :imported, " +
+                "rejected = :rejected, completed = :completed " +
+                "WHERE import_id = :importId AND records_done = :previousRecordsDone AND NOT completed";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("recordsDone", checkpoint.getRecordsDone())
+                .addValue("imported", checkpoint.getImported())
+                .addValue("rejected", checkpoint.getRejected())
+                .addValue("completed", checkpoint.isCompleted())
+                .addValue("importId", checkpoint.getImportId())
+                .addValue("previousRecordsDone", previousRecordsDone);
+        return jdbcOperations.update(sql, params) > 0;
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class LikesMatrixLoader {
+    private final NamedParameterJdbcOperations jdbcOperations;
+    private final LikesMatrix likesMatrix;
+
+    // film_likes читается целиком только здесь: при старте и по команде перестроения.
+    // Пары (user_id, film_id) упаковываются в long и сортируются одним массивом, после чего фильмы
+    // каждого пользователя лежат подряд по возрастанию id и сразу нарезаются в массивы матрицы
+    @PostConstruct
+    public void rebuild() {
+        long[][] pairs = {new long[1024]};
+        int[] count = new int[1];
+        jdbcOperations.query("SELECT user_id, film_id FROM film_likes", Map.of(), rs -> {
+            if (count[0] == pairs[0].length) {
+                pairs[0] = Arrays.copyOf(pairs[0], count[0] * 2);
+            }
+            pairs[0][count[0]++] = (long) rs.getInt("user_id") << 32 | rs.getInt("film_id");
+        });
+        long[] sorted = Arrays.copyOf(pairs[0], count[0]);
+        Arrays.sort(sorted);
+
+        Map<Integer, int[]> filmsByUser = new HashMap<>();
+        for (int from = 0; from < sorted.length; ) {
+            int user = (int) (sorted[from] >>> 32);
+            int to = from;
+            while (to < sorted.length && (int) (sorted[to] >>> 32) == user) {
+                to++;
+            }
+            int[] films = new int[to - from];
+            for (int i = from; i < to; i++) {
+                films[i - from] = (int) sorted[i];
+            }
+            filmsByUser.put(user, films);
+            from = to;
+        }
+        likesMatrix.rebuild(filmsByUser);
+    }
+}
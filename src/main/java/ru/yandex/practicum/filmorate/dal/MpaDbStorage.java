@@ -21,7 +21,7 @@ public class MpaDbStorage implements MpaStorage {
 
     @Override
     public List<MpaRating> getAllMpaRatings() {
-        String sql = "SELECT * FROM mpa_rating";
+        String sql = "SELECT * FROM mpa_rating ORDER BY rating_id";
         return jdbcTemplate.query(sql, this::mapRowToMpaRating);
     }
 
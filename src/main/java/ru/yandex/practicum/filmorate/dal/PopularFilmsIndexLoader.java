@@ -0,0 +1,96 @@
+package ru.yandex.practicum.filmorate.dal;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.dto.IndexConsistencyReport;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+
+import java.util.*;
+
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class PopularFilmsIndexLoader {
+    private static final int MAX_REPORTED_MISMATCHES = 100;
+
+    private final NamedParameterJdbcOperations jdbcOperations;
+    private final PopularFilmsIndex popularFilmsIndex;
+
+    @PostConstruct
+    public void init() {
+        rebuild(false);
+    }
+
+    // recount = true пересчитывает film.likes_count по film_likes перед загрузкой индекса
+    public void rebuild(boolean recount) {
+        if (recount) {
+            String recountSql = "UPDATE film f SET likes_count = " +
+                    "(SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.film_id)";
+            int updated = jdbcOperations.update(recountSql, Map.of());
+            log.info("Счётчики лайков пересчитаны для {} фильмов", updated);
+        }
+
+        Map<Long, Set<Long>> genresByFilm = new HashMap<>();
+        jdbcOperations.query("SELECT film_id, genre_id FROM film_genre", Map.of(), rs -> {
+            genresByFilm.computeIfAbsent(rs.getLong("film_id"), k -> new HashSet<>()).add(rs.getLong("genre_id"));
+        });
+
+        List<PopularFilmsIndex.Entry> entries = new ArrayList<>();
+        jdbcOperations.query("SELECT film_id, release_year, likes_count FROM film", Map.of(), rs -> {
+            long filmId = rs.getLong("film_id");
+            int releaseYear = rs.getInt("release_year");
+            entries.add(new PopularFilmsIndex.Entry(filmId, rs.getInt("likes_count"),
+                    rs.wasNull() ? null : releaseYear,
+                    genresByFilm.getOrDefault(filmId, Set.of())));
+        });
+        popularFilmsIndex.rebuild(entries);
+    }
+
+    // Сверяет счётчики film.likes_count и индекс с фактическим содержимым film_likes
+    public IndexConsistencyReport checkConsistency() {
+        String sql = "SELECT f.film_id, f.likes_count, COUNT(fl.user_id) AS actual_count " +
+                "FROM film f " +
+                "LEFT JOIN film_likes fl ON f.film_id = fl.film_id " +
+                "GROUP BY f.film_id, f.likes_count";
+        Set<Long> indexedIds = popularFilmsIndex.getFilmIds();
+        int filmsInIndex = indexedIds.size();
+        List<Long> mismatched = new ArrayList<>();
+        int[] counters = new int[3]; // фильмов в БД, расхождений счётчика, расхождений индекса
+
+        jdbcOperations.query(sql, Map.of(), rs -> {
+            long filmId = rs.getLong("film_id");
+            int stored = rs.getInt("likes_count");
+            int actual = rs.getInt("actual_count");
+            boolean mismatch = false;
+            counters[0]++;
+            if (stored != actual) {
+                counters[1]++;
+                mismatch = true;
+            }
+            if (!indexedIds.remove(filmId) || popularFilmsIndex.getLikes(filmId) != actual) {
+                counters[2]++;
+                mismatch = true;
+            }
+            if (mismatch && mismatched.size() < MAX_REPORTED_MISMATCHES) {
+                mismatched.add(filmId);
+            }
+        });
+        // Всё, что осталось в индексе, отсутствует в БД
+        counters[2] += indexedIds.size();
+        indexedIds.stream()
+                .limit(Math.max(0, MAX_REPORTED_MISMATCHES - mismatched.size()))
+                .forEach(mismatched::add);
+
+        return IndexConsistencyReport.builder()
+                .consistent(counters[1] == 0 && counters[2] == 0)
+                .filmsInDb(counters[0])
+                .filmsInIndex(filmsInIndex)
+                .counterMismatches(counters[1])
+                .indexMismatches(counters[2])
+                .mismatchedFilmIds(mismatched)
+                .build();
+    }
+}
@@ -2,14 +2,17 @@ package ru.yandex.practicum.filmorate.dal;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dal.mappers.ReviewRowMapper;
 import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.monitoring.StorageWriteCounters;
 import ru.yandex.practicum.filmorate.storage.ReviewStorage;
 
 import java.util.HashMap;
@@ -23,11 +26,14 @@ public class ReviewDbStorage implements ReviewStorage {
 
     private final NamedParameterJdbcOperations jdbcOperations;
     private final ReviewRowMapper reviewRowMapper;
+    private final StorageWriteCounters writeCounters;
 
     @Autowired
-    public ReviewDbStorage(NamedParameterJdbcOperations jdbcOperations, ReviewRowMapper reviewRowMapper) {
+    public ReviewDbStorage(NamedParameterJdbcOperations jdbcOperations, ReviewRowMapper reviewRowMapper,
+                           StorageWriteCounters writeCounters) {
         this.jdbcOperations = jdbcOperations;
         this.reviewRowMapper = reviewRowMapper;
+        this.writeCounters = writeCounters;
     }
 
     @Override
@@ -45,6 +51,7 @@ public class ReviewDbStorage implements ReviewStorage {
 
         jdbcOperations.update(sql, new MapSqlParameterSource(params), keyHolder);
         review.setReviewId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+        writeCounters.record("review", "add", 1);
 
         return review;
     }
@@ -73,7 +80,7 @@ public class ReviewDbStorage implements ReviewStorage {
         Map<String, Object> params = new HashMap<>();
         params.put("reviewId", reviewId);
 
-        jdbcOperations.update(sql, params);
+        writeCounters.record("review", "remove", jdbcOperations.update(sql, params));
     }
 
 
@@ -99,80 +106,94 @@ public class ReviewDbStorage implements ReviewStorage {
 
     @Override
     public List<Review> getReviewsByFilmId(Long filmId, int count) {
-        String sql;
-        Map<String, Object> params = new HashMap<>();
-
-        params.put("count", count);
+        return getReviewsPage(filmId, null, null, count);
+    }
 
+    // Порядок useful DESC, review_id совпадает с индексами idx_reviews_useful и idx_reviews_film_useful_id.
+    // Условие курсора записано как диапазон по useful, чтобы поиск шёл по индексу
+    @Override
+    public List<Review> getReviewsPage(Long filmId, Integer afterUseful, Long afterReviewId, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM reviews WHERE 1 = 1");
+        Map<String, Object> params = new HashMap<>();
         if (filmId != null) {
-            sql = "SELECT * FROM reviews WHERE film_id = :filmId ORDER BY useful DESC LIMIT :count";
+            sql.append(" AND film_id = :filmId");
             params.put("filmId", filmId);
-        } else {
-            sql = "SELECT * FROM reviews ORDER BY useful DESC LIMIT :count";
         }
-        return jdbcOperations.query(sql, params, reviewRowMapper);
+        if (afterUseful != null && afterReviewId != null) {
+            sql.append(" AND useful <= :afterUseful AND (useful < :afterUseful OR review_id > :afterReviewId)");
+            params.put("afterUseful", afterUseful);
+            params.put("afterReviewId", afterReviewId);
+        }
+        sql.append(" ORDER BY useful DESC, review_id LIMIT :limit");
+        params.put("limit", limit);
+        return jdbcOperations.query(sql.toString(), params, reviewRowMapper);
     }
 
     @Override
+    @Transactional
     public void addLike(Long reviewId, Long userId) {
-        String sql = "INSERT INTO review_likes (review_id, user_id, is_like) VALUES (:reviewId, :userId, true)";
-        Map<String, Object> params = new HashMap<>();
-        params.put("reviewId", reviewId);
-        params.put("userId", userId);
-
-        jdbcOperations.update(sql, params);
-        updateUseful(reviewId, 1);
+        vote(reviewId, userId, true);
     }
 
     @Override
+    @Transactional
     public void addDislike(Long reviewId, Long userId) {
-        // Проверка существования лайка
-        String checkSql = "SELECT COUNT(*) FROM review_likes WHERE review_id = :reviewId AND user_id = :userId AND is_like = true";
-        Map<String, Object> params = new HashMap<>();
-        params.put("reviewId", reviewId);
-        params.put("userId", userId);
-
-        Integer count = jdbcOperations.queryForObject(checkSql, params, Integer.class);
-
-        if (count != null && count > 0) {
-            // Если лайк существует, удаляем его
-            removeLike(reviewId, userId);
-        }
-
-        // Проверка существования дизлайка
-        String checkDislikeSql = "SELECT COUNT(*) FROM review_likes WHERE review_id = :reviewId AND user_id = :userId AND is_like = false";
-        Integer dislikeCount = jdbcOperations.queryForObject(checkDislikeSql, params, Integer.class);
-
-        if (dislikeCount == null || dislikeCount == 0) {
-            String sql = "INSERT INTO review_likes (review_id, user_id, is_like) VALUES (:reviewId, :userId, false)";
-            jdbcOperations.update(sql, params);
-            updateUseful(reviewId, -1);
-        } else {
-            log.warn("Пользователь с id = {} уже поставил дизлайк на отзыв id = {}", userId, reviewId);
-        }
+        vote(reviewId, userId, false);
     }
 
-
     @Override
+    @Transactional
     public void removeLike(Long reviewId, Long userId) {
-        String sql = "DELETE FROM review_likes WHERE review_id = :reviewId AND user_id = :userId AND is_like = true";
+        removeVote(reviewId, userId, true);
+    }
+
+    @Override
+    @Transactional
+    public void removeDislike(Long reviewId, Long userId) {
+        removeVote(reviewId, userId, false);
+    }
+
+    // Голос ставится одним MERGE, а OLD TABLE возвращает прежний голос этого пользователя (если он был).
+    // MERGE блокирует строку голоса, UPDATE - строку отзыва, поэтому параллельные голоса не теряются
+    private void vote(Long reviewId, Long userId, boolean isLike) {
+        String sql = "SELECT is_like FROM OLD TABLE (" +
+                "MERGE INTO review_likes KEY (review_id, user_id) VALUES (:reviewId, :userId, :isLike))";
         Map<String, Object> params = new HashMap<>();
         params.put("reviewId", reviewId);
         params.put("userId", userId);
+        params.put("isLike", isLike);
 
-        jdbcOperations.update(sql, params);
-        updateUseful(reviewId, -1);
+        List<Boolean> previous;
+        try {
+            previous = jdbcOperations.queryForList(sql, params, Boolean.class);
+        } catch (DuplicateKeyException e) {
+            // Параллельный запрос того же пользователя успел вставить строку - повторный MERGE её обновит
+            log.debug("Повторный голос пользователя {} за отзыв {} после параллельной вставки", userId, reviewId);
+            previous = jdbcOperations.queryForList(sql, params, Boolean.class);
+        }
+        int delta = weight(isLike) - (previous.isEmpty() ? 0 : weight(previous.get(0)));
+        if (delta != 0) {
+            updateUseful(reviewId, delta);
+            writeCounters.record("review_vote", isLike ? "like" : "dislike", 1);
+        }
     }
 
-    @Override
-    public void removeDislike(Long reviewId, Long userId) {
-        String sql = "DELETE FROM review_likes WHERE review_id = :reviewId AND user_id = :userId AND is_like = false";
+    private void removeVote(Long reviewId, Long userId, boolean isLike) {
+        String sql = "DELETE FROM review_likes WHERE review_id = :reviewId AND user_id = :userId AND is_like = :isLike";
         Map<String, Object> params = new HashMap<>();
         params.put("reviewId", reviewId);
         params.put("userId", userId);
+        params.put("isLike", isLike);
 
-        jdbcOperations.update(sql, params);
-        updateUseful(reviewId, 1);
+        int deleted = jdbcOperations.update(sql, params);
+        if (deleted > 0) {
+            updateUseful(reviewId, -weight(isLike) * deleted);
+            writeCounters.record("review_vote", "remove", deleted);
+        }
+    }
+
+    private static int weight(boolean isLike) {
+        return isLike ? 1 : -1;
     }
 
     private void updateUseful(Long reviewId, int delta) {
@@ -183,10 +204,4 @@ public class ReviewDbStorage implements ReviewStorage {
 
         jdbcOperations.update(sql, params);
     }
-
-    @Override
-    public List<Review> getAllReviewsSortedByUseful() {
-        String sql = "SELECT * FROM reviews ORDER BY useful DESC";
-        return jdbcOperations.query(sql, reviewRowMapper);
-    }
 }
\ No newline at end of file
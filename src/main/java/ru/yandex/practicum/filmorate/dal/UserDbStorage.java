@@ -7,39 +7,65 @@ import org.springframework.context.annotation.Primary;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Component;
-import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.index.ExistenceIndex;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.FriendSuggestions;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.index.RecommendationEngine;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.monitoring.StorageWriteCounters;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
+import java.sql.PreparedStatement;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 
 @Slf4j
 @Component
 @Qualifier("userDbStorage")
 @Primary
 public class UserDbStorage implements UserStorage {
+    private static final int STREAM_FETCH_SIZE = 500;
 
     private final NamedParameterJdbcOperations jdbcOperations;
     private final UserRowMapper userRowMapper; // Добавляем UserRowMapper
-    private final FilmRowMapper filmRowMapper;
-    private final GenreDbStorage genreDbStorage;
-    private final DirectorDbStorage directorDbStorage;
+    private final FilmDbStorage filmDbStorage;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final LikesMatrix likesMatrix;
+    private final RecommendationEngine recommendationEngine;
+    private final ExistenceIndex existenceIndex;
+    private final FriendGraph friendGraph;
+    private final FriendSuggestions friendSuggestions;
+    private final StorageWriteCounters writeCounters;
 
     @Autowired
     public UserDbStorage(NamedParameterJdbcOperations jdbcOperations, UserRowMapper userRowMapper,
-                         FilmRowMapper filmRowMapper, GenreDbStorage genreDbStorage,
-                         DirectorDbStorage directorDbStorage) {
+                         FilmDbStorage filmDbStorage, PopularFilmsIndex popularFilmsIndex,
+                         LikesMatrix likesMatrix, RecommendationEngine recommendationEngine,
+                         ExistenceIndex existenceIndex, FriendGraph friendGraph,
+                         FriendSuggestions friendSuggestions, StorageWriteCounters writeCounters) {
         this.jdbcOperations = jdbcOperations;
         this.userRowMapper = userRowMapper; // Инициализация UserRowMapper
-        this.filmRowMapper = filmRowMapper;
-        this.genreDbStorage = genreDbStorage;
-        this.directorDbStorage = directorDbStorage;
+        this.filmDbStorage = filmDbStorage;
+        this.popularFilmsIndex = popularFilmsIndex;
+        this.likesMatrix = likesMatrix;
+        this.recommendationEngine = recommendationEngine;
+        this.existenceIndex = existenceIndex;
+        this.friendGraph = friendGraph;
+        this.friendSuggestions = friendSuggestions;
+        this.writeCounters = writeCounters;
     }
 
     @Override
@@ -55,10 +81,12 @@ public class UserDbStorage implements UserStorage {
         params.put("name", user.getName());
         params.put("birthday", user.getBirthday());
 
+        KeyHolder keyHolder = new GeneratedKeyHolder();
         try {
-            jdbcOperations.update(sql, params);
-            Long userId = jdbcOperations.queryForObject("SELECT MAX(user_id) FROM users", params, Long.class);
-            user.setId(userId);
+            // id берём из сгенерированного ключа, а не через MAX(user_id): параллельная вставка не подменит его
+            jdbcOperations.update(sql, new MapSqlParameterSource(params), keyHolder, new String[]{"user_id"});
+            user.setId(Objects.requireNonNull(keyHolder.getKey()).longValue());
+            existenceIndex.addUser(user.getId());
 
             return user;
         } catch (Exception e) {
@@ -88,6 +116,28 @@ public class UserDbStorage implements UserStorage {
         return jdbcOperations.query(sql, userRowMapper);
     }
 
+    // Строки читаются курсором с fetch size и сразу отдаются потребителю, список пользователей не собирается
+    @Override
+    public void streamAllUsers(Consumer<User> consumer) {
+        int[] rowNum = new int[1];
+        jdbcOperations.getJdbcOperations().query(connection -> {
+            PreparedStatement statement = connection.prepareStatement("SELECT * FROM users ORDER BY user_id");
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, rs -> {
+            consumer.accept(userRowMapper.mapRow(rs, rowNum[0]++));
+        });
+    }
+
+    @Override
+    public List<User> getUsersPage(Long afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE user_id > :afterId ORDER BY user_id LIMIT :limit";
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterId", afterId != null ? afterId : 0L)
+                .addValue("limit", limit);
+        return jdbcOperations.query(sql, params, userRowMapper);
+    }
+
     @Override
     public User getUserById(Long userId) {
         log.info("Запрос на получение пользователя с id = {}", userId);
@@ -109,6 +159,11 @@ public class UserDbStorage implements UserStorage {
     }
 
 
+    @Override
+    public boolean existsById(Long userId) {
+        return existenceIndex.userExists(userId);
+    }
+
     @Override
     public void addFriend(Long userId, Long friendId) {
         String sql = "INSERT INTO FRIENDS (user_id, friend_id) VALUES (:userId, :friendId)";
@@ -116,7 +171,12 @@ public class UserDbStorage implements UserStorage {
         params.put("userId", userId);
         params.put("friendId", friendId);
 
-        jdbcOperations.update(sql, params);
+        int inserted = jdbcOperations.update(sql, params);
+        if (inserted > 0) {
+            friendGraph.addFriend(userId, friendId);
+            friendSuggestions.invalidate(userId, () -> getFollowerIds(userId));
+        }
+        writeCounters.record("friend", "add", inserted);
     }
 
     @Override
@@ -126,73 +186,94 @@ public class UserDbStorage implements UserStorage {
         params.put("userId", userId);
         params.put("friendId", friendId);
 
-        jdbcOperations.update(sql, params);
+        int deleted = jdbcOperations.update(sql, params);
+        if (deleted > 0) {
+            friendGraph.removeFriend(userId, friendId);
+            friendSuggestions.invalidate(userId, () -> getFollowerIds(userId));
+        }
+        writeCounters.record("friend", "remove", deleted);
     }
 
+    // Те, у кого пользователь в друзьях: граф входящих связей не хранит, поэтому они читаются из FRIENDS
+    private List<Long> getFollowerIds(Long userId) {
+        return jdbcOperations.queryForList("SELECT user_id FROM friends WHERE friend_id = :userId",
+                Map.of("userId", userId), Long.class);
+    }
+
+    // Друзья и общие друзья берутся из графа в памяти, из БД загружаются только сами пользователи
     @Override
     public List<User> getCommonFriends(Long userId1, Long userId2) {
-        String sql = "SELECT u.* FROM FRIENDS f1 " +
-                "JOIN FRIENDS f2 ON f1.friend_id = f2.friend_id " +
-                "JOIN users u ON f1.friend_id = u.user_id " +
-                "WHERE f1.user_id = :userId1 AND f2.user_id = :userId2";
-        Map<String, Object> params = new HashMap<>();
-        params.put("userId1", userId1);
-        params.put("userId2", userId2);
-
-        return jdbcOperations.query(sql, params, userRowMapper); // Используем UserRowMapper
+        return getUsersByIds(friendGraph.getCommonFriends(userId1, userId2));
     }
 
     @Override
     public List<User> getFriends(Long userId) {
-        String sql = "SELECT u.* FROM FRIENDS f " +
-                "JOIN users u ON f.friend_id = u.user_id " +
-                "WHERE f.user_id = :userId";
-        Map<String, Object> params = new HashMap<>();
-        params.put("userId", userId);
+        return getUsersByIds(friendGraph.getFriends(userId));
+    }
 
-        return jdbcOperations.query(sql, params, userRowMapper); // Используем UserRowMapper
+    @Override
+    public List<User> getFriendsPage(Long userId, Long afterFriendId, int limit) {
+        return getUsersByIds(friendGraph.getFriendsAfter(userId, afterFriendId, limit));
     }
 
+    // Кандидаты ранжируются по графу в памяти; пользователи загружаются по id и расставляются в порядке ранга
     @Override
-    public List<Film> getRecommendations(Long userId) {
-        String sql = "SELECT DISTINCT f.*, mr.rating_mpa FROM film f " +
-                "JOIN film_likes fl_similar ON f.film_id = fl_similar.film_id " +
-                "JOIN mpa_rating mr ON f.rating_id = mr.rating_id " +
-                "WHERE fl_similar.user_id IN (" +
-                "    SELECT fl_other.user_id " +
-                "    FROM film_likes fl_user " +
-                "    JOIN film_likes fl_other ON fl_user.film_id = fl_other.film_id " +
-                "    WHERE fl_user.user_id = :userId " +
-                "      AND fl_other.user_id != :userId " +
-                "    GROUP BY fl_other.user_id " +
-                "    ORDER BY COUNT(fl_other.film_id) DESC " +
-                "    LIMIT 1 " +
-                ") " +
-                "AND f.film_id NOT IN (" +
-                "    SELECT film_id FROM film_likes WHERE user_id = :userId " +
-                ")";
-        MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("userId", userId);
-        try {
-            List<Film> films = jdbcOperations.query(sql, params, filmRowMapper);
+    public List<User> getSuggestions(Long userId, int limit) {
+        long[] ranked = friendSuggestions.suggest(userId, limit);
+        long[] sorted = ranked.clone();
+        Arrays.sort(sorted);
+        Map<Long, User> users = new HashMap<>();
+        getUsersByIds(sorted).forEach(user -> users.put(user.getId(), user));
+        return Arrays.stream(ranked)
+                .mapToObj(users::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
 
-            for (Film film : films) {
-                film.setGenres(genreDbStorage.getGenresForFilm(film.getId()));
-                film.setDirectors(directorDbStorage.getDirectorsForFilm(film.getId()));
-            }
-            return films;
-        } catch (Exception e) {
-            log.error("Ошибка при выполнении SQL-запроса: ", e);
-            throw e;
+    // Пользователи по отсортированным id, в том же порядке. Список id передаётся одним параметром-массивом:
+    // текст запроса не зависит от числа id, и H2 не разбирает его заново для каждого размера списка
+    private List<User> getUsersByIds(long[] userIds) {
+        if (userIds.length == 0) {
+            return List.of();
         }
+        Long[] ids = Arrays.stream(userIds).boxed().toArray(Long[]::new);
+        return jdbcOperations.getJdbcOperations().query(
+                "SELECT * FROM users WHERE user_id = ANY(?) ORDER BY user_id", userRowMapper, (Object) ids);
     }
 
     @Override
+    public List<Film> getRecommendations(Long userId) {
+        // Соседи и кандидаты берутся из матрицы лайков в памяти, из БД загружаются только сами фильмы
+        List<Long> filmIds = recommendationEngine.recommend(userId);
+        return filmDbStorage.getFilmsByIds(filmIds);
+    }
+
+    @Override
+    @Transactional
     public void deleteUser(Long userId) {
-        String sql = "DELETE FROM users WHERE user_id = :userId";
         Map<String, Object> params = new HashMap<>();
         params.put("userId", userId);
 
+        // Лайки пользователя удалятся каскадно, поэтому заранее уменьшаем счётчики лайков его фильмов
+        List<Long> likedFilmIds = jdbcOperations.queryForList(
+                "SELECT film_id FROM film_likes WHERE user_id = :userId", params, Long.class);
+        if (!likedFilmIds.isEmpty()) {
+            jdbcOperations.update("UPDATE film SET likes_count = likes_count - 1 " +
+                    "WHERE film_id IN (SELECT film_id FROM film_likes WHERE user_id = :userId)", params);
+        }
+
+        // Входящие дружбы тоже удалятся каскадно: их владельцев граф в памяти сам не найдёт
+        List<Long> followerIds = getFollowerIds(userId);
+
+        String sql = "DELETE FROM users WHERE user_id = :userId";
         jdbcOperations.update(sql, params);
+        AfterCommit.run(() -> {
+            likedFilmIds.forEach(filmId -> popularFilmsIndex.changeLikes(filmId, -1));
+            existenceIndex.removeUser(userId);
+            friendGraph.removeUser(userId, followerIds);
+            friendSuggestions.invalidate(userId, () -> followerIds);
+            likesMatrix.removeUser(userId);
+            recommendationEngine.forget(userId);
+        });
     }
 }
@@ -1,7 +1,9 @@
 package ru.yandex.practicum.filmorate.dal.mappers;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 
@@ -10,7 +12,9 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 
 @Component
+@RequiredArgsConstructor
 public class FilmRowMapper implements RowMapper<Film> {
+    private final ReferenceDataCache referenceDataCache;
 
     @Override
     public Film mapRow(ResultSet rs, int rowNum) throws SQLException {
@@ -21,10 +25,11 @@ public class FilmRowMapper implements RowMapper<Film> {
         film.setReleaseDate(rs.getDate("release_date").toLocalDate());
         film.setDuration(rs.getInt("duration"));
 
-        // Проверка на наличие данных рейтинга
+        // Название рейтинга берётся из справочника в памяти, поэтому запросам не нужен JOIN с mpa_rating
         MpaRating mpaRating = new MpaRating();
         mpaRating.setId(rs.getLong("rating_id"));
-        mpaRating.setName(rs.getString("rating_MPA") != null ? rs.getString("rating_MPA") : "Неизвестно"); // Проверка на null
+        String mpaName = referenceDataCache.getMpaName(mpaRating.getId());
+        mpaRating.setName(mpaName != null ? mpaName : "Неизвестно");
         film.setMpa(mpaRating);
 
         // Оставляем пустые списки, жанры и режиссеры будут загружены отдельно
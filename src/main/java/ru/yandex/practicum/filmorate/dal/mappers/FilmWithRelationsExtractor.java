@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.dal.mappers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+// Разбирает результат запроса вида film LEFT JOIN жанры LEFT JOIN режиссеры, где один фильм занимает
+// несколько строк. Колонки жанра и режиссера должны называться genre_id/genre_name и director_id/director_name.
+@Component
+@RequiredArgsConstructor
+public class FilmWithRelationsExtractor implements ResultSetExtractor<List<Film>> {
+    private final FilmRowMapper filmRowMapper;
+
+    @Override
+    public List<Film> extractData(ResultSet rs) throws SQLException {
+        Map<Long, Film> films = new LinkedHashMap<>();
+        Map<Long, Set<Genre>> genres = new HashMap<>();
+        Map<Long, Set<Director>> directors = new HashMap<>();
+        int rowNum = 0;
+        while (rs.next()) {
+            long filmId = rs.getLong("film_id");
+            if (!films.containsKey(filmId)) {
+                films.put(filmId, filmRowMapper.mapRow(rs, rowNum));
+                genres.put(filmId, new LinkedHashSet<>());
+                directors.put(filmId, new LinkedHashSet<>());
+            }
+            rowNum++;
+
+            long genreId = rs.getLong("genre_id");
+            if (!rs.wasNull()) {
+                Genre genre = new Genre();
+                genre.setId(genreId);
+                genre.setName(rs.getString("genre_name"));
+                genres.get(filmId).add(genre);
+            }
+            int directorId = rs.getInt("director_id");
+            if (!rs.wasNull()) {
+                Director director = new Director();
+                director.setId(directorId);
+                director.setName(rs.getString("director_name"));
+                directors.get(filmId).add(director);
+            }
+        }
+        for (Film film : films.values()) {
+            film.setGenres(new ArrayList<>(genres.get(film.getId())));
+            film.setDirectors(new ArrayList<>(directors.get(film.getId())));
+        }
+        return new ArrayList<>(films.values());
+    }
+}
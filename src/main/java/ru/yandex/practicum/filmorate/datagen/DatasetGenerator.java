@@ -0,0 +1,293 @@
+package ru.yandex.practicum.filmorate.datagen;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Генератор синтетических данных прямо в таблицы schema.sql пакетными INSERT.
+// Каждый этап (пользователи, режиссеры, фильмы, лайки, друзья, отзывы, события) делится на порции
+// по chunkSize записей, порции этапа пишутся параллельно. Порция пишется в одной транзакции вместе
+// с отметкой в datagen_checkpoint, поэтому прерванную генерацию можно запустить снова с тем же
+// DatasetSpec: готовые порции пропускаются. Случайные числа порции зависят только от seed, этапа
+// и номера порции, так что при одинаковом DatasetSpec получаются одинаковые данные.
+// id назначаются явно (пользователи 1..users и т.д.), поэтому на старте таблицы должны быть пустыми.
+@Slf4j
+public class DatasetGenerator {
+    public static final List<String> TITLE_WORDS = List.of("star", "night", "river", "ghost", "city", "storm",
+            "empire", "garden", "shadow", "winter", "machine", "ocean", "silent", "golden", "last", "secret");
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final DatasetSpec spec;
+    private final int parallelism;
+    private List<Long> genreIds;
+    private List<Long> mpaIds;
+    private ZipfSampler filmPopularity;
+    private ZipfSampler userPopularity;
+
+    private record Stage(String name, long units, ChunkWriter writer) {
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter {
+        // Пишет записи с номерами from (включительно) .. to (не включительно)
+        void write(long from, long to, SplittableRandom random);
+    }
+
+    public DatasetGenerator(DataSource dataSource, DatasetSpec spec) {
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.spec = spec;
+        this.parallelism = spec.getParallelism() > 0 ? spec.getParallelism() : Runtime.getRuntime().availableProcessors();
+    }
+
+    public void generate() {
+        long start = System.currentTimeMillis();
+        prepare();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (Stage stage : stages()) {
+                run(stage, executor);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        finish();
+        log.info("Генерация данных завершена за {} с", (System.currentTimeMillis() - start) / 1000);
+    }
+
+    private void prepare() {
+        jdbc.execute("CREATE TABLE IF NOT EXISTS datagen_run (spec VARCHAR(1000) NOT NULL)");
+        jdbc.execute("CREATE TABLE IF NOT EXISTS datagen_checkpoint (stage VARCHAR(20), chunk BIGINT, " +
+                "PRIMARY KEY (stage, chunk))");
+        // Параллелизм на данные не влияет, его можно менять между запусками
+        String signature = spec.toBuilder().parallelism(0).build().toString();
+        List<String> previous = jdbc.queryForList("SELECT spec FROM datagen_run", String.class);
+        if (previous.isEmpty()) {
+            Integer users = jdbc.queryForObject("SELECT COUNT(*) FROM users", Integer.class);
+            Integer films = jdbc.queryForObject("SELECT COUNT(*) FROM film", Integer.class);
+            if (users != 0 || films != 0) {
+                throw new IllegalStateException("Генерация данных возможна только в пустую базу: пользователей " +
+                        users + ", фильмов " + films);
+            }
+            jdbc.update("INSERT INTO datagen_run (spec) VALUES (?)", signature);
+            log.info("Генерация данных начата: {}", spec);
+        } else if (!previous.get(0).equals(signature)) {
+            throw new IllegalStateException("В базе уже есть данные другой генерации: " + previous.get(0));
+        } else {
+            log.info("Генерация данных продолжается с последней отметки: {}", spec);
+        }
+        genreIds = jdbc.queryForList("SELECT genre_id FROM genres ORDER BY genre_id", Long.class);
+        mpaIds = jdbc.queryForList("SELECT rating_id FROM mpa_rating ORDER BY rating_id", Long.class);
+        filmPopularity = new ZipfSampler(spec.getFilms(), spec.getLikesSkew());
+        userPopularity = new ZipfSampler(spec.getUsers(), spec.getFriendsSkew());
+    }
+
+    private List<Stage> stages() {
+        return List.of(
+                new Stage("users", spec.getUsers(), this::writeUsers),
+                new Stage("directors", spec.getDirectors(), this::writeDirectors),
+                new Stage("films", spec.getFilms(), this::writeFilms),
+                new Stage("likes", spec.getUsers(), this::writeLikes),
+                new Stage("friends", spec.getUsers(), this::writeFriends),
+                new Stage("reviews", spec.getReviews(), this::writeReviews),
+                new Stage("events", spec.getEvents(), this::writeEvents));
+    }
+
+    private void run(Stage stage, ExecutorService executor) {
+        long chunks = (stage.units() + spec.getChunkSize() - 1) / spec.getChunkSize();
+        Set<Long> done = new HashSet<>(jdbc.queryForList(
+                "SELECT chunk FROM datagen_checkpoint WHERE stage = ?", Long.class, stage.name()));
+        if (done.size() == chunks) {
+            log.info("Этап {} уже выполнен", stage.name());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<Future<?>> futures = new ArrayList<>();
+        for (long chunk = 0; chunk < chunks; chunk++) {
+            if (done.contains(chunk)) {
+                continue;
+            }
+            long chunkIndex = chunk;
+            futures.add(executor.submit(() -> writeChunk(stage, chunkIndex)));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Генерация данных прервана на этапе " + stage.name(), e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ошибка генерации данных на этапе " + stage.name(), e.getCause());
+        }
+        log.info("Этап {}: записано порций {} из {} за {} мс", stage.name(), futures.size(), chunks,
+                System.currentTimeMillis() - start);
+    }
+
+    private void writeChunk(Stage stage, long chunk) {
+        long from = chunk * spec.getChunkSize();
+        long to = Math.min(from + spec.getChunkSize(), stage.units());
+        SplittableRandom random = new SplittableRandom(spec.getSeed() * 1_000_003L + stage.name().hashCode() * 31L + chunk);
+        transactionTemplate.executeWithoutResult(status -> {
+            stage.writer().write(from, to, random);
+            jdbc.update("INSERT INTO datagen_checkpoint (stage, chunk) VALUES (?, ?)", stage.name(), chunk);
+        });
+    }
+
+    private void writeUsers(long from, long to, SplittableRandom random) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = from + 1; id <= to; id++) {
+            rows.add(new Object[]{id, "user" + id + "@example.com", "user" + id, "User " + id,
+                Date.valueOf(LocalDate.of(1950 + random.nextInt(60), 1 + random.nextInt(12), 1 + random.nextInt(28)))});
+        }
+        jdbc.batchUpdate("INSERT INTO users (user_id, email, login, name, birthday) VALUES (?, ?, ?, ?, ?)", rows);
+    }
+
+    private void writeDirectors(long from, long to, SplittableRandom random) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = from + 1; id <= to; id++) {
+            rows.add(new Object[]{id, capitalize(word(random)) + " " + capitalize(word(random))});
+        }
+        jdbc.batchUpdate("INSERT INTO directors (director_id, name) VALUES (?, ?)", rows);
+    }
+
+    private void writeFilms(long from, long to, SplittableRandom random) {
+        List<Object[]> films = new ArrayList<>();
+        List<Object[]> genres = new ArrayList<>();
+        List<Object[]> directors = new ArrayList<>();
+        for (long id = from + 1; id <= to; id++) {
+            String name = capitalize(word(random)) + " " + word(random) + " " + id;
+            films.add(new Object[]{id, name, "Description of " + name,
+                Date.valueOf(LocalDate.of(1930 + random.nextInt(95), 1 + random.nextInt(12), 1 + random.nextInt(28))),
+                60 + random.nextInt(120), mpaIds.get(random.nextInt(mpaIds.size()))});
+            int first = random.nextInt(genreIds.size());
+            genres.add(new Object[]{id, genreIds.get(first)});
+            if (genreIds.size() > 1 && random.nextBoolean()) {
+                genres.add(new Object[]{id, genreIds.get((first + 1 + random.nextInt(genreIds.size() - 1))
+                        % genreIds.size())});
+            }
+            if (spec.getDirectors() > 0) {
+                directors.add(new Object[]{id, 1 + random.nextInt(spec.getDirectors())});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO film (film_id, name, description, release_date, duration, rating_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", films);
+        jdbc.batchUpdate("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", genres);
+        jdbc.batchUpdate("INSERT INTO films_directors (film_id, director_id) VALUES (?, ?)", directors);
+    }
+
+    // Число лайков пользователя распределено экспоненциально, сами фильмы выбираются по Ципфу
+    private void writeLikes(long from, long to, SplittableRandom random) {
+        double mean = (double) spec.getLikes() / spec.getUsers();
+        List<Object[]> rows = new ArrayList<>();
+        for (long userId = from + 1; userId <= to; userId++) {
+            int count = (int) Math.min(spec.getFilms(), exponential(random, mean));
+            for (long filmId : distinct(random, filmPopularity, count, -1)) {
+                rows.add(new Object[]{filmId, userId});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO film_likes (film_id, user_id) VALUES (?, ?)", rows);
+    }
+
+    // Исходящие связи экспоненциальны, входящие - степенной закон: друзей выбирают по Ципфу
+    private void writeFriends(long from, long to, SplittableRandom random) {
+        double mean = (double) spec.getFriendships() / spec.getUsers();
+        List<Object[]> rows = new ArrayList<>();
+        for (long userId = from + 1; userId <= to; userId++) {
+            int count = (int) Math.min(spec.getUsers() - 1, exponential(random, mean));
+            for (long friendId : distinct(random, userPopularity, count, userId)) {
+                rows.add(new Object[]{userId, friendId});
+            }
+        }
+        jdbc.batchUpdate("INSERT INTO friends (user_id, friend_id) VALUES (?, ?)", rows);
+    }
+
+    private void writeReviews(long from, long to, SplittableRandom random) {
+        List<Object[]> rows = new ArrayList<>();
+        for (long id = from + 1; id <= to; id++) {
+            rows.add(new Object[]{id, "Review " + id + ": " + word(random) + " " + word(random),
+                random.nextBoolean(), 1 + random.nextInt(spec.getUsers()), filmPopularity.nextId(random)});
+        }
+        jdbc.batchUpdate("INSERT INTO reviews (review_id, content, is_positive, user_id, film_id) " +
+                "VALUES (?, ?, ?, ?, ?)", rows);
+    }
+
+    // Активность пользователей тоже по Ципфу; event_id и timestamp растут вместе
+    private void writeEvents(long from, long to, SplittableRandom random) {
+        String[] operations = {"ADD", "REMOVE", "UPDATE"};
+        List<Object[]> rows = new ArrayList<>();
+        long baseTimestamp = 1_600_000_000_000L;
+        for (long id = from + 1; id <= to; id++) {
+            int type = random.nextInt(spec.getReviews() > 0 ? 3 : 2);
+            String eventType;
+            long entityId;
+            if (type == 0) {
+                eventType = "LIKE";
+                entityId = filmPopularity.nextId(random);
+            } else if (type == 1) {
+                eventType = "FRIEND";
+                entityId = userPopularity.nextId(random);
+            } else {
+                eventType = "REVIEW";
+                entityId = 1 + random.nextInt(spec.getReviews());
+            }
+            rows.add(new Object[]{id, baseTimestamp + id * 10, userPopularity.nextId(random), eventType,
+                operations[random.nextInt(operations.length)], entityId});
+        }
+        jdbc.batchUpdate("INSERT INTO events (event_id, timestamp, user_id, event_type, operation, entity_id) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    // Счётчики лайков и автоинкременты после вставки с явными id. Идемпотентно, выполняется при каждом запуске
+    private void finish() {
+        int updated = jdbc.update("UPDATE film f SET likes_count = " +
+                "(SELECT COUNT(*) FROM film_likes fl WHERE fl.film_id = f.film_id)");
+        log.info("Счётчики лайков пересчитаны для {} фильмов", updated);
+        restartIdentity("users", "user_id");
+        restartIdentity("film", "film_id");
+        restartIdentity("directors", "director_id");
+        restartIdentity("reviews", "review_id");
+        restartIdentity("events", "event_id");
+    }
+
+    private void restartIdentity(String table, String column) {
+        Long max = jdbc.queryForObject("SELECT COALESCE(MAX(" + column + "), 0) FROM " + table, Long.class);
+        jdbc.execute("ALTER TABLE " + table + " ALTER COLUMN " + column + " RESTART WITH " + (max + 1));
+    }
+
+    private static long exponential(SplittableRandom random, double mean) {
+        return Math.round(-mean * Math.log(1 - random.nextDouble()));
+    }
+
+    // count различных id из выборки, кроме excluded. Попыток ограниченное число: при сильном перекосе
+    // и большом count популярные id выпадают повторно, тогда записей получается немного меньше
+    private static Set<Long> distinct(SplittableRandom random, ZipfSampler sampler, int count, long excluded) {
+        Set<Long> result = new LinkedHashSet<>();
+        for (int attempt = 0; result.size() < count && attempt < count * 4; attempt++) {
+            long id = sampler.nextId(random);
+            if (id != excluded) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static String word(SplittableRandom random) {
+        return TITLE_WORDS.get(random.nextInt(TITLE_WORDS.size()));
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
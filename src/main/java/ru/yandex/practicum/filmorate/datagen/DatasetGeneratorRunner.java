@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.datagen;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.MaintenanceService;
+
+import javax.sql.DataSource;
+
+// Запуск генерации при старте приложения с профилем datagen, например:
+// java -jar filmorate.jar --spring.profiles.active=datagen --filmorate.datagen.users=100000
+// После генерации индексы в памяти перестраиваются, и приложение работает на новых данных.
+@Slf4j
+@Component
+@Profile("datagen")
+public class DatasetGeneratorRunner implements CommandLineRunner {
+    private final DataSource dataSource;
+    private final MaintenanceService maintenanceService;
+    private final DatasetSpec spec;
+
+    public DatasetGeneratorRunner(DataSource dataSource, MaintenanceService maintenanceService,
+                                  @Value("${filmorate.datagen.users:1000000}") int users,
+                                  @Value("${filmorate.datagen.films:200000}") int films,
+                                  @Value("${filmorate.datagen.directors:20000}") int directors,
+                                  @Value("${filmorate.datagen.likes:50000000}") long likes,
+                                  @Value("${filmorate.datagen.friendships:10000000}") long friendships,
+                                  @Value("${filmorate.datagen.reviews:5000000}") int reviews,
+                                  @Value("${filmorate.datagen.events:100000000}") long events,
+                                  @Value("${filmorate.datagen.likes-skew:1.0}") double likesSkew,
+                                  @Value("${filmorate.datagen.friends-skew:1.0}") double friendsSkew,
+                                  @Value("${filmorate.datagen.seed:42}") long seed,
+                                  @Value("${filmorate.datagen.chunk-size:10000}") int chunkSize,
+                                  @Value("${filmorate.datagen.parallelism:0}") int parallelism) {
+        this.dataSource = dataSource;
+        this.maintenanceService = maintenanceService;
+        this.spec = DatasetSpec.builder()
+                .users(users)
+                .films(films)
+                .directors(directors)
+                .likes(likes)
+                .friendships(friendships)
+                .reviews(reviews)
+                .events(events)
+                .likesSkew(likesSkew)
+                .friendsSkew(friendsSkew)
+                .seed(seed)
+                .chunkSize(chunkSize)
+                .parallelism(parallelism)
+                .build();
+    }
+
+    @Override
+    public void run(String... args) {
+        new DatasetGenerator(dataSource, spec).generate();
+        log.info("Перестроение индексов после генерации данных");
+        maintenanceService.rebuildExistenceIndex();
+        maintenanceService.rebuildFriendGraph();
+        maintenanceService.rebuildPopularIndex(false);
+        maintenanceService.rebuildSearchIndex();
+        maintenanceService.rebuildRecommendations();
+    }
+}
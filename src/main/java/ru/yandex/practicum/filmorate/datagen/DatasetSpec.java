@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.datagen;
+
+import lombok.Builder;
+import lombok.Data;
+
+// Объёмы синтетического набора данных. Значения по умолчанию - целевая форма продовой базы.
+// likes, friendships и events - средние значения: число записей на пользователя случайное.
+@Builder(toBuilder = true)
+@Data
+public class DatasetSpec {
+    @Builder.Default
+    private int users = 1_000_000;
+    @Builder.Default
+    private int films = 200_000;
+    @Builder.Default
+    private int directors = 20_000;
+    @Builder.Default
+    private long likes = 50_000_000L;
+    @Builder.Default
+    private long friendships = 10_000_000L;
+    @Builder.Default
+    private int reviews = 5_000_000;
+    @Builder.Default
+    private long events = 100_000_000L;
+    // Показатели степени распределения Ципфа для популярности фильмов и пользователей
+    @Builder.Default
+    private double likesSkew = 1.0;
+    @Builder.Default
+    private double friendsSkew = 1.0;
+    @Builder.Default
+    private long seed = 42;
+    @Builder.Default
+    private int chunkSize = 10_000;
+    // 0 - по числу ядер
+    @Builder.Default
+    private int parallelism = 0;
+}
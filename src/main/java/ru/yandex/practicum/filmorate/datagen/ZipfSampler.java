@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.datagen;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Выборка номеров 0..n-1 по закону Ципфа: вероятность номера k пропорциональна 1 / (k + 1)^exponent.
+// Номер переводится в id через перестановку с взаимно простым шагом, чтобы популярные записи
+// не были сосредоточены в начале таблицы. Неизменяемый, общий для всех потоков генерации.
+class ZipfSampler {
+    private final double[] cumulative;
+    private final int n;
+    private final long stride;
+
+    ZipfSampler(int n, double exponent) {
+        this.n = n;
+        this.cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+        long candidate = Math.max(1, (long) (n * 0.618)) | 1;
+        while (gcd(candidate, n) != 1) {
+            candidate += 2;
+        }
+        this.stride = candidate;
+    }
+
+    // id от 1 до n
+    long nextId(SplittableRandom random) {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+        if (rank < 0) {
+            rank = Math.min(-rank - 1, n - 1);
+        }
+        return rank * stride % n + 1;
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
@@ -0,0 +1,12 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class FilmImportRejection {
+    // Номер записи в источнике, начиная с 1, без строки заголовка CSV
+    private long record;
+    private String reason;
+}
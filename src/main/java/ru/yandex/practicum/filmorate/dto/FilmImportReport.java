@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Builder
+@Data
+public class FilmImportReport {
+    private String importId;
+    private String format;
+    // Записи, обработанные прошлыми запусками того же импорта и пропущенные в этом
+    private long skipped;
+    private long processed;
+    private long imported;
+    private long rejected;
+    private boolean completed;
+    private long durationMillis;
+    private double filmsPerSecond;
+    private List<FilmImportRejection> rejections;
+}
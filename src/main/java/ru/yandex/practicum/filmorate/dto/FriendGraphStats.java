@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+public class FriendGraphStats {
+    private int users;
+    private long friendships;
+    private int maxFriends;
+    private long estimatedBytes;
+    private long lastRebuildDurationMillis;
+}
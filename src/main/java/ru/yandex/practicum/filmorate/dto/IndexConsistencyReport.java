@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Builder
+@Data
+public class IndexConsistencyReport {
+    private boolean consistent;
+    private int filmsInDb;
+    private int filmsInIndex;
+    private int counterMismatches;
+    private int indexMismatches;
+    private List<Long> mismatchedFilmIds;
+}
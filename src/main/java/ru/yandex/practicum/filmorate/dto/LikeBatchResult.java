@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class LikeBatchResult {
+    private int index;
+    private Long filmId;
+    private Long userId;
+    private LikeBatchStatus status;
+}
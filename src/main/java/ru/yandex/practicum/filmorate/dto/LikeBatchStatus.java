@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.dto;
+
+public enum LikeBatchStatus {
+    ADDED,
+    ALREADY_LIKED,
+    INVALID,
+    FILM_NOT_FOUND,
+    USER_NOT_FOUND
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+public class RecommendationStats {
+    private int users;
+    private long likes;
+    private int films;
+    private long estimatedBytes;
+    private int neighborTableSize;
+    private int neighborCount;
+    private String similarity;
+    private long lastRefreshMillis;
+    private long lastRefreshDurationMillis;
+    private int lastRefreshUsers;
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Builder
+@Data
+public class SearchIndexStats {
+    private int films;
+    private int directors;
+    private int titleTrigrams;
+    private int directorTrigrams;
+    private long postings;
+    private long estimatedBytes;
+}
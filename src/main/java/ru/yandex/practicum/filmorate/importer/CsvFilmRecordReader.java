@@ -0,0 +1,179 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// CSV с заголовком, столбцы в любом порядке: name, description, releaseDate (ГГГГ-ММ-ДД), duration, mpa (id),
+// genres и directors (id через точку с запятой). Обязательны name, releaseDate, duration и mpa.
+// Поле в кавычках может содержать запятые, переводы строк и удвоенные кавычки. Пустые строки пропускаются.
+// Запись длиннее MAX_RECORD_LENGTH отклоняется, а чтение продолжается со следующей физической строки
+class CsvFilmRecordReader implements FilmRecordReader {
+    private static final Set<String> COLUMNS = Set.of("name", "description", "releaseDate", "duration", "mpa",
+            "genres", "directors");
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "releaseDate", "duration", "mpa");
+    private static final String LIST_SEPARATOR = ";";
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private boolean unterminatedQuote;
+    private boolean tooLong;
+    private long number;
+
+    CsvFilmRecordReader(BufferedReader reader) throws IOException {
+        this.reader = reader;
+        List<String> header = readRow();
+        if (header == null) {
+            return;
+        }
+        if (tooLong) {
+            throw new ValidationException("Заголовок CSV длиннее " + MAX_RECORD_LENGTH + " символов");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i).trim();
+            if (!COLUMNS.contains(column)) {
+                throw new ValidationException("Неизвестный столбец CSV: " + column + ", допустимые: " + COLUMNS);
+            }
+            columns.put(column, i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new ValidationException("В заголовке CSV нет обязательного столбца " + column);
+            }
+        }
+    }
+
+    @Override
+    public FilmRecord next() throws IOException {
+        if (columns.isEmpty()) {
+            return null;
+        }
+        List<String> row;
+        do {
+            row = readRow();
+            if (row == null) {
+                return null;
+            }
+        } while (row.size() == 1 && row.get(0).isBlank());
+        number++;
+        if (tooLong) {
+            return FilmRecord.rejected(number, "Запись длиннее " + MAX_RECORD_LENGTH + " символов");
+        }
+        if (unterminatedQuote) {
+            return FilmRecord.rejected(number, "Незакрытая кавычка в записи");
+        }
+        if (row.size() != columns.size()) {
+            return FilmRecord.rejected(number, "Ожидается полей: " + columns.size() + ", получено: " + row.size());
+        }
+        try {
+            return FilmRecord.parsed(number, toFilm(row));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            return FilmRecord.rejected(number, "Некорректное значение: " + e.getMessage());
+        }
+    }
+
+    private Film toFilm(List<String> row) {
+        Film film = new Film();
+        film.setName(field(row, "name"));
+        String description = field(row, "description");
+        film.setDescription(description.isEmpty() ? null : description);
+        film.setReleaseDate(LocalDate.parse(field(row, "releaseDate").trim()));
+        film.setDuration(Integer.parseInt(field(row, "duration").trim()));
+        MpaRating mpa = new MpaRating();
+        mpa.setId(Long.parseLong(field(row, "mpa").trim()));
+        film.setMpa(mpa);
+        List<Genre> genres = new ArrayList<>();
+        for (String id : ids(field(row, "genres"))) {
+            Genre genre = new Genre();
+            genre.setId(Long.parseLong(id));
+            genres.add(genre);
+        }
+        film.setGenres(genres);
+        List<Director> directors = new ArrayList<>();
+        for (String id : ids(field(row, "directors"))) {
+            Director director = new Director();
+            director.setId(Integer.parseInt(id));
+            directors.add(director);
+        }
+        film.setDirectors(directors);
+        return film;
+    }
+
+    private String field(List<String> row, String column) {
+        Integer index = columns.get(column);
+        return index != null ? row.get(index) : "";
+    }
+
+    private static List<String> ids(String value) {
+        List<String> ids = new ArrayList<>();
+        for (String id : value.split(LIST_SEPARATOR)) {
+            if (!id.isBlank()) {
+                ids.add(id.trim());
+            }
+        }
+        return ids;
+    }
+
+    // Следующая строка CSV как список полей или null в конце источника
+    private List<String> readRow() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean read = false;
+        int length = 0;
+        tooLong = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            read = true;
+            if (++length > MAX_RECORD_LENGTH) {
+                // Остаток записи не накапливаем: пропускаем до конца строки и считаем кавычку закрытой
+                while (c != '\n' && c != -1) {
+                    c = reader.read();
+                }
+                tooLong = true;
+                quoted = false;
+                break;
+            }
+            if (quoted) {
+                if (c != '"') {
+                    field.append((char) c);
+                    continue;
+                }
+                reader.mark(1);
+                if (reader.read() == '"') {
+                    field.append('"');
+                } else {
+                    reader.reset();
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (!read) {
+            return null;
+        }
+        unterminatedQuote = quoted;
+        fields.add(field.toString());
+        return fields;
+    }
+}
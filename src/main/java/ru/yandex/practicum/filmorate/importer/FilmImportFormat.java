@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+import java.util.Locale;
+
+public enum FilmImportFormat {
+    CSV,
+    NDJSON;
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    public static FilmImportFormat fromContentType(String contentType) {
+        try {
+            MediaType mediaType = contentType != null ? MediaType.parseMediaType(contentType) : null;
+            if (mediaType != null && TEXT_CSV.includes(mediaType)) {
+                return CSV;
+            }
+            if (mediaType != null && MediaType.APPLICATION_NDJSON.includes(mediaType)) {
+                return NDJSON;
+            }
+        } catch (InvalidMediaTypeException e) {
+            // Ниже ответим той же ошибкой, что и на неподдерживаемый тип
+        }
+        throw new ValidationException("Импорт принимает text/csv или application/x-ndjson, получено: " + contentType);
+    }
+
+    public static FilmImportFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        throw new ValidationException("Формат импорта определяется по расширению .csv, .ndjson или .jsonl: " + fileName);
+    }
+}
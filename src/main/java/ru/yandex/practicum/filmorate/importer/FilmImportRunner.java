@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dto.FilmImportReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Импорт каталога из файла при старте приложения с профилем import, например:
+// java -jar filmorate.jar --spring.profiles.active=import --filmorate.import.file=films.csv
+// Формат определяется по расширению. По умолчанию importId — имя файла, поэтому повторный запуск
+// с тем же файлом продолжает прерванный импорт. После импорта приложение продолжает работать
+@Slf4j
+@Component
+@Profile("import")
+public class FilmImportRunner implements CommandLineRunner {
+    private final FilmImportService filmImportService;
+    private final Path file;
+    private final String importId;
+
+    public FilmImportRunner(FilmImportService filmImportService,
+                            @Value("${filmorate.import.file}") String file,
+                            @Value("${filmorate.import.id:}") String importId) {
+        this.filmImportService = filmImportService;
+        this.file = Path.of(file);
+        this.importId = importId.isBlank() ? this.file.getFileName().toString() : importId;
+    }
+
+    @Override
+    public void run(String... args) throws IOException {
+        FilmImportFormat format = FilmImportFormat.fromFileName(file.getFileName().toString());
+        try (InputStream source = Files.newInputStream(file)) {
+            FilmImportReport report = filmImportService.importFilms(source, format, importId);
+            report.getRejections().forEach(rejection -> log.warn("Импорт {}: запись {} отклонена: {}",
+                    importId, rejection.getRecord(), rejection.getReason()));
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.dto.DirectorDto;
+import ru.yandex.practicum.filmorate.dto.FilmImportRejection;
+import ru.yandex.practicum.filmorate.dto.FilmImportReport;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.ImportCheckpoint;
+import ru.yandex.practicum.filmorate.storage.DirectorStorage;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.ImportCheckpointStorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Импорт каталога фильмов из CSV или NDJSON. Источник читается потоком по записи, записи проверяются по
+// справочникам в памяти и копятся в пачку по chunkSize записей. Пачка пишется многострочными INSERT
+// в одной транзакции с отметкой film_import_checkpoint, поэтому прерванный импорт можно запустить снова
+// с тем же importId и тем же источником: уже обработанные записи пропускаются без повторной вставки.
+// Отклонённые записи не прерывают импорт, в отчёт попадают их число и первые MAX_REPORTED_REJECTIONS причин
+@Slf4j
+@Service
+public class FilmImportService {
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+    // Длина film.name в схеме
+    private static final int NAME_LENGTH = 100;
+    private static final int DESCRIPTION_LENGTH = 200;
+
+    private final FilmStorage filmStorage;
+    private final DirectorStorage directorStorage;
+    private final ImportCheckpointStorage checkpointStorage;
+    private final ReferenceDataCache referenceDataCache;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public FilmImportService(FilmStorage filmStorage, DirectorStorage directorStorage,
+                             ImportCheckpointStorage checkpointStorage, ReferenceDataCache referenceDataCache,
+                             ObjectMapper objectMapper, PlatformTransactionManager transactionManager,
+                             @Value("${filmorate.import.chunk-size:1000}") int chunkSize) {
+        this.filmStorage = filmStorage;
+        this.directorStorage = directorStorage;
+        this.checkpointStorage = checkpointStorage;
+        this.referenceDataCache = referenceDataCache;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public FilmImportReport importFilms(InputStream source, FilmImportFormat format, String importId) {
+        long start = System.nanoTime();
+        ImportCheckpoint checkpoint = checkpointStorage.startImport(importId);
+        FilmImportReport report = FilmImportReport.builder()
+                .importId(importId)
+                .format(format.name())
+                .skipped(checkpoint.getRecordsDone())
+                .rejections(new ArrayList<>())
+                .build();
+        if (checkpoint.isCompleted()) {
+            log.info("Импорт {} уже завершён: добавлено {}, отклонено {}", importId, checkpoint.getImported(),
+                    checkpoint.getRejected());
+            return finish(report, start);
+        }
+        log.info("Импорт {} из {}, уже обработано записей: {}", importId, format, checkpoint.getRecordsDone());
+
+        Set<Integer> directorIds = directorStorage.getAllDirectors().stream()
+                .map(DirectorDto::getId)
+                .collect(Collectors.toSet());
+        List<Film> films = new ArrayList<>(chunkSize);
+        long chunkRecords = 0;
+        long chunkRejected = 0;
+        try {
+            FilmRecordReader reader = FilmRecordReader.open(format, source, objectMapper);
+            for (FilmRecord record = reader.next(); record != null; record = reader.next()) {
+                if (record.number() <= checkpoint.getRecordsDone()) {
+                    continue;
+                }
+                String error = record.error() != null ? record.error() : validate(record.film(), directorIds);
+                if (error != null) {
+                    chunkRejected++;
+                    if (report.getRejections().size() < MAX_REPORTED_REJECTIONS) {
+                        report.getRejections().add(new FilmImportRejection(record.number(), error));
+                    }
+                } else {
+                    films.add(record.film());
+                }
+                if (++chunkRecords == chunkSize) {
+                    checkpoint = writeChunk(checkpoint, films, chunkRecords, chunkRejected, false, report);
+                    films.clear();
+                    chunkRecords = 0;
+                    chunkRejected = 0;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Ошибка чтения источника импорта " + importId, e);
+        }
+        writeChunk(checkpoint, films, chunkRecords, chunkRejected, true, report);
+        return finish(report, start);
+    }
+
+    // Пачка фильмов и сдвиг отметки в одной транзакции. Отметка сдвигается первой: если её уже сдвинул
+    // параллельный запуск того же импорта, пачка не пишется вовсе
+    private ImportCheckpoint writeChunk(ImportCheckpoint checkpoint, List<Film> films, long records, long rejected,
+                                        boolean completed, FilmImportReport report) {
+        ImportCheckpoint next = new ImportCheckpoint(checkpoint.getImportId(),
+                checkpoint.getRecordsDone() + records,
+                checkpoint.getImported() + films.size(),
+                checkpoint.getRejected() + rejected,
+                completed);
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!checkpointStorage.advance(next, checkpoint.getRecordsDone())) {
+                throw new IllegalStateException("Импорт " + checkpoint.getImportId() + " уже выполняется");
+            }
+            filmStorage.addFilms(films);
+        });
+        report.setProcessed(report.getProcessed() + records);
+        report.setImported(report.getImported() + films.size());
+        report.setRejected(report.getRejected() + rejected);
+        log.debug("Импорт {}: обработано записей {}", next.getImportId(), next.getRecordsDone());
+        return next;
+    }
+
+    private FilmImportReport finish(FilmImportReport report, long start) {
+        long durationNanos = System.nanoTime() - start;
+        report.setCompleted(true);
+        report.setDurationMillis(durationNanos / 1_000_000);
+        report.setFilmsPerSecond(durationNanos > 0 ? report.getImported() * 1e9 / durationNanos : 0);
+        log.info("Импорт {} завершён за {} мс: обработано {}, добавлено {}, отклонено {}, пропущено {}, {} фильмов/с",
+                report.getImportId(), report.getDurationMillis(), report.getProcessed(), report.getImported(),
+                report.getRejected(), report.getSkipped(), Math.round(report.getFilmsPerSecond()));
+        return report;
+    }
+
+    // Те же правила, что и у POST /films. Возвращает причину отказа или null, если фильм можно добавлять
+    private String validate(Film film, Set<Integer> directorIds) {
+        if (film.getName() == null || film.getName().isBlank()) {
+            return "Название не может быть пустым";
+        }
+        if (film.getName().length() > NAME_LENGTH) {
+            return "Название не может быть больше " + NAME_LENGTH + " символов";
+        }
+        if (film.getDescription() != null && film.getDescription().length() > DESCRIPTION_LENGTH) {
+            return "Описание не может быть больше " + DESCRIPTION_LENGTH + " символов";
+        }
+        if (film.getReleaseDate() == null || film.getReleaseDate().isBefore(FilmController.RELEASE_DATE)) {
+            return "Дата релиза не может быть до 28 декабря 1895 года";
+        }
+        if (film.getDuration() <= 0) {
+            return "Продолжительность должна быть положительным числом";
+        }
+        if (film.getMpa() == null || !referenceDataCache.hasMpa(film.getMpa().getId())) {
+            return "MPA Рейтинг должен существовать";
+        }
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                if (genre == null || !referenceDataCache.hasGenre(genre.getId())) {
+                    return "Жанр с id " + (genre != null ? genre.getId() : null) + " не существует";
+                }
+            }
+        }
+        if (film.getDirectors() != null) {
+            for (Director director : film.getDirectors()) {
+                if (director == null || !directorIds.contains(director.getId())) {
+                    return "Режиссер с id " + (director != null ? director.getId() : null) + " не существует";
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,14 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+// Запись источника: разобранный фильм или причина, по которой запись не разобрать. number — номер записи с 1
+record FilmRecord(long number, Film film, String error) {
+    static FilmRecord parsed(long number, Film film) {
+        return new FilmRecord(number, film, null);
+    }
+
+    static FilmRecord rejected(long number, String error) {
+        return new FilmRecord(number, null, error);
+    }
+}
@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+// Потоковое чтение источника импорта по одной записи: в памяти держится только текущая запись
+interface FilmRecordReader {
+    // Предел длины записи в символах: запись длиннее отклоняется, не накапливаясь в памяти целиком,
+    // например, если в CSV не закрыта кавычка и запись тянется до конца источника
+    int MAX_RECORD_LENGTH = 64 * 1024;
+
+    // Следующая запись или null, если источник закончился
+    FilmRecord next() throws IOException;
+
+    static FilmRecordReader open(FilmImportFormat format, InputStream source, ObjectMapper objectMapper)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(source, StandardCharsets.UTF_8));
+        return switch (format) {
+            case CSV -> new CsvFilmRecordReader(reader);
+            case NDJSON -> new NdjsonFilmRecordReader(reader, objectMapper);
+        };
+    }
+}
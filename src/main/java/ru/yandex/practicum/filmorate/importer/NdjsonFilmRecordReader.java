@@ -0,0 +1,71 @@
+package ru.yandex.practicum.filmorate.importer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import ru.yandex.practicum.filmorate.dto.FilmDto;
+import ru.yandex.practicum.filmorate.mapper.FilmMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+// NDJSON: на строке фильм в том же виде, что и в теле POST /films. Каждая строка разбирается отдельно,
+// поэтому испорченная строка отклоняется сама по себе, а чтение продолжается со следующей. Пустые строки пропускаются.
+// Строка длиннее MAX_RECORD_LENGTH отклоняется без чтения в память целиком
+class NdjsonFilmRecordReader implements FilmRecordReader {
+    private final BufferedReader reader;
+    private final ObjectReader filmReader;
+    private long number;
+    private boolean tooLong;
+
+    NdjsonFilmRecordReader(BufferedReader reader, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.filmReader = objectMapper.readerFor(FilmDto.class);
+    }
+
+    @Override
+    public FilmRecord next() throws IOException {
+        String line;
+        do {
+            line = readLine();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+        number++;
+        if (tooLong) {
+            return FilmRecord.rejected(number, "Запись длиннее " + MAX_RECORD_LENGTH + " символов");
+        }
+        try {
+            FilmDto filmDto = filmReader.readValue(line);
+            return filmDto != null
+                    ? FilmRecord.parsed(number, FilmMapper.toFilm(filmDto))
+                    : FilmRecord.rejected(number, "Ожидается объект фильма");
+        } catch (JsonProcessingException e) {
+            return FilmRecord.rejected(number, "Некорректный JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    // Как BufferedReader.readLine, но символы сверх MAX_RECORD_LENGTH пропускаются, а не копятся
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        tooLong = false;
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        while (c != -1 && c != '\n') {
+            if (line.length() < MAX_RECORD_LENGTH) {
+                line.append((char) c);
+            } else {
+                tooLong = true;
+            }
+            c = reader.read();
+        }
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == '\r') {
+            line.setLength(end - 1);
+        }
+        return line.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Битовые карты существующих id пользователей и фильмов: проверка существования в контроллерах обходится без SQL.
+// Поддерживается хранилищами при создании и удалении и перестраивается из БД при старте.
+@Slf4j
+@Component
+public class ExistenceIndex {
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet users = new BitSet();
+    private final BitSet films = new BitSet();
+
+    public boolean userExists(Long userId) {
+        return contains(users, userId);
+    }
+
+    public boolean filmExists(Long filmId) {
+        return contains(films, filmId);
+    }
+
+    public void addUser(Long userId) {
+        set(users, userId, true);
+    }
+
+    public void removeUser(Long userId) {
+        set(users, userId, false);
+    }
+
+    public void addFilm(Long filmId) {
+        set(films, filmId, true);
+    }
+
+    public void removeFilm(Long filmId) {
+        set(films, filmId, false);
+    }
+
+    public void rebuild(Collection<Long> userIds, Collection<Long> filmIds) {
+        lock.writeLock().lock();
+        try {
+            users.clear();
+            films.clear();
+            userIds.forEach(userId -> users.set(Math.toIntExact(userId)));
+            filmIds.forEach(filmId -> films.set(Math.toIntExact(filmId)));
+            log.info("Индекс существования перестроен: пользователей {}, фильмов {}", userIds.size(), filmIds.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean contains(BitSet ids, Long id) {
+        if (id == null || id < 0 || id > Integer.MAX_VALUE) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return ids.get(id.intValue());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void set(BitSet ids, Long id, boolean value) {
+        lock.writeLock().lock();
+        try {
+            ids.set(Math.toIntExact(id), value);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dto.SearchIndexStats;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Триграммный инвертированный индекс по названиям фильмов и именам режиссеров.
+// Поиск подстроки: пересекаем списки по триграммам запроса и проверяем кандидатов через contains,
+// так что результат совпадает с LOWER(name) LIKE '%query%'.
+@Slf4j
+@Component
+public class FilmSearchIndex {
+    private static final int GRAM = 3;
+    private static final long MAP_ENTRY_BYTES = 40; // узел HashMap и его доля в таблице
+    private static final long BOXED_BYTES = 16;
+    private static final long EMPTY_SET_BYTES = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> titles = new HashMap<>();
+    private final Map<String, Set<Long>> titleGrams = new HashMap<>();
+    private final Map<Integer, String> directorNames = new HashMap<>();
+    private final Map<String, Set<Integer>> directorGrams = new HashMap<>();
+    private final Map<Integer, Set<Long>> filmsByDirector = new HashMap<>();
+    private final Map<Long, Set<Integer>> directorsByFilm = new HashMap<>();
+
+    public void putFilm(Long filmId, String title, Collection<Integer> directorIds) {
+        lock.writeLock().lock();
+        try {
+            unlinkFilm(filmId);
+            String normalized = normalize(title);
+            titles.put(filmId, normalized);
+            for (String gram : grams(normalized)) {
+                titleGrams.computeIfAbsent(gram, k -> new HashSet<>()).add(filmId);
+            }
+            if (!directorIds.isEmpty()) {
+                directorsByFilm.put(filmId, new HashSet<>(directorIds));
+                for (Integer directorId : directorIds) {
+                    filmsByDirector.computeIfAbsent(directorId, k -> new HashSet<>()).add(filmId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            unlinkFilm(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putDirector(Integer directorId, String name) {
+        lock.writeLock().lock();
+        try {
+            unlinkDirectorName(directorId);
+            String normalized = normalize(name);
+            directorNames.put(directorId, normalized);
+            for (String gram : grams(normalized)) {
+                directorGrams.computeIfAbsent(gram, k -> new HashSet<>()).add(directorId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeDirector(Integer directorId) {
+        lock.writeLock().lock();
+        try {
+            unlinkDirectorName(directorId);
+            Set<Long> films = filmsByDirector.remove(directorId);
+            if (films != null) {
+                for (Long filmId : films) {
+                    removeFromPosting(directorsByFilm, filmId, directorId);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Возвращает id фильмов без упорядочивания: ранжирование по лайкам выполняет вызывающий код
+    public Set<Long> search(String query, boolean byTitle, boolean byDirector) {
+        String normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            Set<Long> result = new HashSet<>();
+            if (byTitle) {
+                result.addAll(match(normalized, titles, titleGrams));
+            }
+            if (byDirector) {
+                for (Integer directorId : match(normalized, directorNames, directorGrams)) {
+                    result.addAll(filmsByDirector.getOrDefault(directorId, Set.of()));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void rebuild(Map<Long, String> filmTitles, Map<Integer, String> directors,
+                        Map<Long, Set<Integer>> filmDirectors) {
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            titleGrams.clear();
+            directorNames.clear();
+            directorGrams.clear();
+            filmsByDirector.clear();
+            directorsByFilm.clear();
+            // Блокировка на запись реентерабельна, поэтому put* можно вызывать, не отпуская её
+            directors.forEach(this::putDirector);
+            filmTitles.forEach((filmId, title) ->
+                    putFilm(filmId, title, filmDirectors.getOrDefault(filmId, Set.of())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс перестроен: фильмов {}, режиссеров {}", filmTitles.size(), directors.size());
+    }
+
+    // Оценка занимаемой памяти по приблизительным размерам объектов в 64-битной JVM со сжатыми ссылками
+    public SearchIndexStats getStats() {
+        lock.readLock().lock();
+        try {
+            long titlePostings = titleGrams.values().stream().mapToLong(Set::size).sum();
+            long directorPostings = directorGrams.values().stream().mapToLong(Set::size).sum();
+            long linkPostings = filmsByDirector.values().stream().mapToLong(Set::size).sum();
+            long bytes = 0;
+            bytes += titles.values().stream().mapToLong(FilmSearchIndex::stringBytes).sum();
+            bytes += directorNames.values().stream().mapToLong(FilmSearchIndex::stringBytes).sum();
+            bytes += (titles.size() + directorNames.size()) * (MAP_ENTRY_BYTES + BOXED_BYTES);
+            bytes += (titleGrams.size() + directorGrams.size())
+                    * (MAP_ENTRY_BYTES + stringBytes("abc") + EMPTY_SET_BYTES);
+            bytes += (titlePostings + directorPostings + 2 * linkPostings) * (MAP_ENTRY_BYTES + BOXED_BYTES);
+            bytes += (filmsByDirector.size() + directorsByFilm.size()) * (MAP_ENTRY_BYTES + BOXED_BYTES + EMPTY_SET_BYTES);
+            return SearchIndexStats.builder()
+                    .films(titles.size())
+                    .directors(directorNames.size())
+                    .titleTrigrams(titleGrams.size())
+                    .directorTrigrams(directorGrams.size())
+                    .postings(titlePostings + directorPostings + linkPostings)
+                    .estimatedBytes(bytes)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static long stringBytes(String value) {
+        // Кириллица хранится в UTF-16, латиница - по байту на символ
+        boolean latin = value.chars().allMatch(c -> c < 256);
+        return 40 + (long) value.length() * (latin ? 1 : 2);
+    }
+
+    private <K> Set<K> match(String query, Map<K, String> values, Map<String, Set<K>> grams) {
+        Collection<K> candidates;
+        if (query.length() < GRAM) {
+            candidates = values.keySet();
+        } else {
+            candidates = intersect(grams(query), grams);
+        }
+        Set<K> matched = new HashSet<>();
+        for (K key : candidates) {
+            String value = values.get(key);
+            if (value != null && value.contains(query)) {
+                matched.add(key);
+            }
+        }
+        return matched;
+    }
+
+    private <K> Collection<K> intersect(Set<String> queryGrams, Map<String, Set<K>> grams) {
+        List<Set<K>> postings = new ArrayList<>(queryGrams.size());
+        for (String gram : queryGrams) {
+            Set<K> posting = grams.get(gram);
+            if (posting == null) {
+                return List.of();
+            }
+            postings.add(posting);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        Set<K> result = new HashSet<>(postings.get(0));
+        for (int i = 1; i < postings.size() && !result.isEmpty(); i++) {
+            result.retainAll(postings.get(i));
+        }
+        return result;
+    }
+
+    private void unlinkFilm(Long filmId) {
+        String oldTitle = titles.remove(filmId);
+        if (oldTitle != null) {
+            for (String gram : grams(oldTitle)) {
+                removeFromPosting(titleGrams, gram, filmId);
+            }
+        }
+        Set<Integer> directors = directorsByFilm.remove(filmId);
+        if (directors != null) {
+            for (Integer directorId : directors) {
+                removeFromPosting(filmsByDirector, directorId, filmId);
+            }
+        }
+    }
+
+    private void unlinkDirectorName(Integer directorId) {
+        String oldName = directorNames.remove(directorId);
+        if (oldName != null) {
+            for (String gram : grams(oldName)) {
+                removeFromPosting(directorGrams, gram, directorId);
+            }
+        }
+    }
+
+    private static <K, V> void removeFromPosting(Map<K, Set<V>> postings, K key, V value) {
+        Set<V> posting = postings.get(key);
+        if (posting != null) {
+            posting.remove(value);
+            if (posting.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            result.add(value.substring(i, i + GRAM));
+        }
+        return result;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
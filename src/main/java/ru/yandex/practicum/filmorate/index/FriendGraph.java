@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dto.FriendGraphStats;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Граф друзей в памяти: для пользователя - отсортированный массив id друзей (дружба односторонняя, как в FRIENDS).
+// Массив не меняется на месте: запись собирает новый и подменяет ссылку, поэтому читатель берёт массив под
+// блокировкой и дальше работает с ним без неё. Общие друзья - слияние двух отсортированных массивов за O(n + m).
+// Поддерживается хранилищем пользователей и перестраивается из FRIENDS при старте.
+@Slf4j
+@Component
+public class FriendGraph {
+    private static final long[] EMPTY = new long[0];
+    // Приблизительные размеры объектов в 64-битной JVM со сжатыми ссылками
+    private static final long MAP_ENTRY_BYTES = 40;
+    private static final long BOXED_BYTES = 16;
+    private static final long ARRAY_HEADER_BYTES = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, long[]> friendsByUser = new HashMap<>();
+    private long friendships;
+    private long lastRebuildDurationMillis;
+
+    public void addFriend(Long userId, Long friendId) {
+        lock.writeLock().lock();
+        try {
+            long[] friends = friendsByUser.getOrDefault(userId, EMPTY);
+            int position = Arrays.binarySearch(friends, friendId);
+            if (position >= 0) {
+                return;
+            }
+            int insertAt = -position - 1;
+            long[] updated = new long[friends.length + 1];
+            System.arraycopy(friends, 0, updated, 0, insertAt);
+            updated[insertAt] = friendId;
+            System.arraycopy(friends, insertAt, updated, insertAt + 1, friends.length - insertAt);
+            friendsByUser.put(userId, updated);
+            friendships++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFriend(Long userId, Long friendId) {
+        lock.writeLock().lock();
+        try {
+            removeEdge(userId, friendId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Входящих связей граф не хранит: обратные списки удвоили бы занимаемую память. Поэтому тех, у кого
+    // удалённый пользователь в друзьях, передаёт хранилище - оно читает их из FRIENDS по индексу friend_id
+    public void removeUser(Long userId, List<Long> followerIds) {
+        lock.writeLock().lock();
+        try {
+            long[] friends = friendsByUser.remove(userId);
+            if (friends != null) {
+                friendships -= friends.length;
+            }
+            for (Long follower : followerIds) {
+                removeEdge(follower, userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Массив общий для всех читателей, изменять его нельзя
+    public long[] getFriends(Long userId) {
+        lock.readLock().lock();
+        try {
+            return friendsByUser.getOrDefault(userId, EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Списки друзей нескольких пользователей за одну блокировку; массивы общие, изменять их нельзя
+    public long[][] getFriendLists(long[] userIds) {
+        long[][] lists = new long[userIds.length][];
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < userIds.length; i++) {
+                lists[i] = friendsByUser.getOrDefault(userIds[i], EMPTY);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return lists;
+    }
+
+    // Не больше limit друзей с id больше afterId, по возрастанию id
+    public long[] getFriendsAfter(Long userId, Long afterId, int limit) {
+        long[] friends = getFriends(userId);
+        int from = afterId != null ? Arrays.binarySearch(friends, afterId) : -1;
+        from = from >= 0 ? from + 1 : -from - 1;
+        return Arrays.copyOfRange(friends, from, Math.min(friends.length, from + limit));
+    }
+
+    public long[] getCommonFriends(Long userId, Long otherId) {
+        long[] first = getFriends(userId);
+        long[] second = getFriends(otherId);
+        long[] common = new long[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, count);
+    }
+
+    // Массивы друзей должны быть отсортированы по возрастанию и без повторов
+    public void rebuild(Map<Long, long[]> newFriendsByUser, long durationMillis) {
+        lock.writeLock().lock();
+        try {
+            friendsByUser.clear();
+            friendships = 0;
+            newFriendsByUser.forEach((user, friends) -> {
+                if (friends.length > 0) {
+                    friendsByUser.put(user, friends);
+                    friendships += friends.length;
+                }
+            });
+            lastRebuildDurationMillis = durationMillis;
+            log.info("Граф друзей перестроен за {} мс: пользователей {}, связей {}", durationMillis,
+                    friendsByUser.size(), friendships);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public FriendGraphStats getStats() {
+        lock.readLock().lock();
+        try {
+            int maxFriends = friendsByUser.values().stream().mapToInt(friends -> friends.length).max().orElse(0);
+            long bytes = friendsByUser.size() * (MAP_ENTRY_BYTES + BOXED_BYTES + ARRAY_HEADER_BYTES)
+                    + friendships * Long.BYTES;
+            return FriendGraphStats.builder()
+                    .users(friendsByUser.size())
+                    .friendships(friendships)
+                    .maxFriends(maxFriends)
+                    .estimatedBytes(bytes)
+                    .lastRebuildDurationMillis(lastRebuildDurationMillis)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeEdge(Long userId, long friendId) {
+        long[] friends = friendsByUser.get(userId);
+        int position = friends != null ? Arrays.binarySearch(friends, friendId) : -1;
+        if (position < 0) {
+            return;
+        }
+        if (friends.length == 1) {
+            friendsByUser.remove(userId);
+        } else {
+            long[] updated = new long[friends.length - 1];
+            System.arraycopy(friends, 0, updated, 0, position);
+            System.arraycopy(friends, position + 1, updated, position, friends.length - position - 1);
+            friendsByUser.put(userId, updated);
+        }
+        friendships--;
+    }
+}
@@ -0,0 +1,195 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// «Возможно, вы знакомы»: кандидаты - друзья друзей пользователя, кроме него самого и его друзей. Ранг - число
+// друзей пользователя, у которых кандидат в друзьях, при равенстве выше меньший id. Второй шаг обхода ограничен
+// maxVisited связями: друзья обходятся от коротких списков к длинным, последний список - частично, поэтому
+// бюджет тратится на обычных пользователей, а хабы с десятками тысяч друзей не делают запрос неограниченно долгим.
+// Счётчики - в LongIntCounter без упаковки id, лучшие limit кандидатов - в куче размера limit.
+// Для пользователя кэшируются MAX_LIMIT лучших на ttlMillis. Подсказки зависят от его списка друзей и списков
+// его друзей, поэтому изменение дружбы пользователя сбрасывает и его запись, и записи тех, у кого он в друзьях
+// (их передаёт хранилище, см. invalidate). Записи лежат в ConcurrentHashMap, и чтение не берёт общей блокировки.
+// Вытеснение, как в FilmCache, - приблизительный LRU: когда записей становится больше max-size, один поток
+// удаляет самые давно запрошенные так, чтобы осталось 90% от max-size
+@Slf4j
+@Component
+public class FriendSuggestions {
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 100;
+
+    private static final Comparator<Candidate> WORST_FIRST = Comparator.comparingInt(Candidate::mutualFriends)
+            .thenComparing(Comparator.comparingLong(Candidate::userId).reversed());
+
+    private final FriendGraph friendGraph;
+    private final long maxVisited;
+    private final boolean cacheEnabled;
+    private final int cacheMaxSize;
+    private final long cacheTtlMillis;
+    private final Map<Long, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    // Растёт при каждой инвалидации; расчёт, начатый до неё, в кэш не попадёт
+    private final AtomicLong version = new AtomicLong();
+
+    private static final class Entry {
+        private final long[] userIds;
+        private final long expiresAt;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Entry(long[] userIds, long expiresAt) {
+            this.userIds = userIds;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private record Candidate(long userId, int mutualFriends) {
+    }
+
+    public FriendSuggestions(FriendGraph friendGraph,
+                             @Value("${filmorate.suggestions.max-visited:20000}") long maxVisited,
+                             @Value("${filmorate.suggestions.cache.enabled:true}") boolean cacheEnabled,
+                             @Value("${filmorate.suggestions.cache.max-size:10000}") int cacheMaxSize,
+                             @Value("${filmorate.suggestions.cache.ttl-ms:60000}") long cacheTtlMillis) {
+        this.friendGraph = friendGraph;
+        this.maxVisited = maxVisited > 0 ? maxVisited : Long.MAX_VALUE;
+        this.cacheEnabled = cacheEnabled;
+        this.cacheMaxSize = cacheMaxSize;
+        this.cacheTtlMillis = cacheTtlMillis;
+        log.info("Подсказки друзей: обход до {} связей, кэш {}, размер {}, TTL {} мс", maxVisited,
+                cacheEnabled ? "включён" : "выключен", cacheMaxSize, cacheTtlMillis);
+    }
+
+    // id кандидатов от лучшего к худшему, не больше limit (limit не больше MAX_LIMIT)
+    public long[] suggest(Long userId, int limit) {
+        if (!cacheEnabled) {
+            return compute(userId, limit);
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(userId);
+        if (entry == null || entry.expiresAt < now) {
+            long startVersion = version.get();
+            entry = new Entry(compute(userId, MAX_LIMIT), now + cacheTtlMillis);
+            put(userId, entry, startVersion);
+        } else {
+            entry.lastAccess = System.nanoTime();
+        }
+        return Arrays.copyOf(entry.userIds, Math.min(limit, entry.userIds.length));
+    }
+
+    // Сбрасывает подсказки пользователя и тех, у кого он в друзьях: их второй шаг обхода проходит через его список.
+    // Подписчиков хранилище читает из БД, поэтому они запрашиваются, только если в кэше есть что сбрасывать
+    public void invalidate(Long userId, Supplier<Collection<Long>> followerIds) {
+        version.incrementAndGet();
+        if (cache.isEmpty()) {
+            return;
+        }
+        cache.remove(userId);
+        followerIds.get().forEach(cache::remove);
+    }
+
+    public void clear() {
+        version.incrementAndGet();
+        cache.clear();
+    }
+
+    // Как в FilmCache.put: версия меняется до удаления записей, поэтому после записи она проверяется ещё раз
+    private void put(Long userId, Entry entry, long startVersion) {
+        if (version.get() != startVersion) {
+            return;
+        }
+        Entry previous = cache.put(userId, entry);
+        if (version.get() != startVersion) {
+            cache.remove(userId, entry);
+            return;
+        }
+        if (previous == null && cache.size() > cacheMaxSize) {
+            evict();
+        }
+    }
+
+    // Удаляет самые давно запрошенные записи; пока один поток вытесняет, остальные его не ждут
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long[] accesses = cache.values().stream().mapToLong(entry -> entry.lastAccess).toArray();
+            int remove = accesses.length - cacheMaxSize * 9 / 10;
+            if (remove <= 0) {
+                return;
+            }
+            Arrays.sort(accesses);
+            long cutoff = accesses[remove - 1];
+            cache.values().removeIf(entry -> entry.lastAccess <= cutoff);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private long[] compute(Long userId, int limit) {
+        long[] friends = friendGraph.getFriends(userId);
+        if (friends.length == 0 || limit <= 0) {
+            return new long[0];
+        }
+        long[][] lists = friendGraph.getFriendLists(friends);
+        // Длина списка в старших битах, номер друга в младших: сортировка примитивов без компаратора
+        long[] order = new long[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            order[i] = (long) lists[i].length << 32 | i;
+        }
+        Arrays.sort(order);
+
+        long remaining = maxVisited;
+        int expected = 0;
+        for (int i = 0; i < order.length && expected < remaining; i++) {
+            expected = (int) Math.min(remaining, (long) expected + (order[i] >>> 32));
+        }
+        LongIntCounter counter = new LongIntCounter(expected);
+        for (int i = 0; i < order.length && remaining > 0; i++) {
+            long[] list = lists[(int) order[i]];
+            int visit = (int) Math.min(list.length, remaining);
+            for (int j = 0; j < visit; j++) {
+                counter.increment(list[j]);
+            }
+            remaining -= visit;
+        }
+        return top(counter, userId, friends, limit);
+    }
+
+    private static long[] top(LongIntCounter counter, long userId, long[] friends, int limit) {
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(Math.min(limit, counter.size()) + 1, WORST_FIRST);
+        for (int slot = 0; slot < counter.capacity(); slot++) {
+            long candidate = counter.keyAt(slot);
+            if (candidate == 0 || candidate == userId || Arrays.binarySearch(friends, candidate) >= 0) {
+                continue;
+            }
+            int mutualFriends = counter.countAt(slot);
+            if (heap.size() == limit) {
+                Candidate worst = heap.peek();
+                if (mutualFriends < worst.mutualFriends()
+                        || mutualFriends == worst.mutualFriends() && candidate > worst.userId()) {
+                    continue;
+                }
+                heap.poll();
+            }
+            heap.add(new Candidate(candidate, mutualFriends));
+        }
+        long[] result = new long[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll().userId();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,355 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Матрица лайков в памяти: для пользователя - отсортированный массив id понравившихся фильмов,
+// для фильма - отсортированный массив id пользователей, поставивших лайк. Массив занимает 4 байта на лайк
+// независимо от величины id и, как в FriendGraph, не меняется на месте: запись собирает новый и подменяет ссылку,
+// поэтому читатель берёт массив под блокировкой и дальше работает с ним без неё.
+// Каждое изменение лайков пользователя выдаёт ему новую версию, по которой видно, что расчёт соседей устарел.
+// Изменившиеся пользователи и фильмы копятся до следующего пересчёта таблицы соседей, чтобы пересчитывать
+// только тех, чьи пересечения с другими могли измениться.
+@Slf4j
+@Component
+public class LikesMatrix {
+    private static final int[] EMPTY = new int[0];
+    // Ключ для id вне диапазона int: таких строк в матрице нет, поэтому поиск по нему ничего не находит
+    private static final int NO_ID = -1;
+    // Приблизительные размеры объектов в 64-битной JVM со сжатыми ссылками
+    private static final long MAP_ENTRY_BYTES = 40;
+    private static final long BOXED_BYTES = 16;
+    private static final long ARRAY_HEADER_BYTES = 16;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, int[]> filmsByUser = new HashMap<>();
+    private final Map<Integer, int[]> usersByFilm = new HashMap<>();
+    private final Map<Integer, Long> versions = new HashMap<>();
+    private final AtomicLong versionSequence = new AtomicLong();
+    private Set<Integer> changedUsers = new HashSet<>();
+    private Set<Integer> changedFilms = new HashSet<>();
+    private long likes;
+
+    // Пользователь, с которым у заданного есть общие лайки: common - число общих фильмов, liked - всего лайков
+    public record Overlap(long userId, int common, int liked) {
+    }
+
+    public void addLike(Long filmId, Long userId) {
+        int film = Math.toIntExact(filmId);
+        int user = Math.toIntExact(userId);
+        lock.writeLock().lock();
+        try {
+            if (!insert(filmsByUser, user, film)) {
+                return;
+            }
+            insert(usersByFilm, film, user);
+            likes++;
+            touch(user);
+            changedFilms.add(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeLike(Long filmId, Long userId) {
+        int film = key(filmId);
+        int user = key(userId);
+        lock.writeLock().lock();
+        try {
+            if (!delete(filmsByUser, user, film)) {
+                return;
+            }
+            delete(usersByFilm, film, user);
+            likes--;
+            touch(user);
+            changedFilms.add(film);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeUser(Long userId) {
+        int user = key(userId);
+        lock.writeLock().lock();
+        try {
+            int[] films = filmsByUser.remove(user);
+            versions.remove(user);
+            changedUsers.remove(user);
+            if (films == null) {
+                return;
+            }
+            for (int film : films) {
+                delete(usersByFilm, film, user);
+                changedFilms.add(film);
+            }
+            likes -= films.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(Long filmId) {
+        int film = key(filmId);
+        lock.writeLock().lock();
+        try {
+            int[] users = usersByFilm.remove(film);
+            changedFilms.remove(film);
+            if (users == null) {
+                return;
+            }
+            for (int user : users) {
+                delete(filmsByUser, user, film);
+                touch(user);
+            }
+            likes -= users.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Версия лайков пользователя; 0 - у пользователя нет лайков и он их не менял
+    public long getVersion(Long userId) {
+        lock.readLock().lock();
+        try {
+            return versions.getOrDefault(key(userId), 0L);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Отсортированный массив id фильмов; массив общий для всех читателей, изменять его нельзя
+    public int[] getLikedFilms(Long userId) {
+        lock.readLock().lock();
+        try {
+            return filmsByUser.getOrDefault(key(userId), EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Фильмы, которые лайкнули оба пользователя: слияние двух отсортированных массивов за O(n + m),
+    // то есть время зависит только от числа лайков этих двух пользователей
+    public int[] getCommonLikedFilms(Long userId, Long otherId) {
+        int[] first;
+        int[] second;
+        lock.readLock().lock();
+        try {
+            first = filmsByUser.getOrDefault(key(userId), EMPTY);
+            second = filmsByUser.getOrDefault(key(otherId), EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+        int[] common = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                common[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(common, count);
+    }
+
+    // Отсортированный массив id пользователей; массив общий для всех читателей, изменять его нельзя
+    public int[] getLikers(Long filmId) {
+        lock.readLock().lock();
+        try {
+            return usersByFilm.getOrDefault(key(filmId), EMPTY);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Все пользователи, лайкнувшие хотя бы один из фильмов заданного, с числом общих фильмов
+    public List<Overlap> getOverlaps(Long userId) {
+        int user = key(userId);
+        lock.readLock().lock();
+        try {
+            int[] films = filmsByUser.get(user);
+            if (films == null) {
+                return List.of();
+            }
+            LongIntCounter common = new LongIntCounter(films.length);
+            for (int film : films) {
+                for (int other : usersByFilm.get(film)) {
+                    if (other != user) {
+                        common.increment(other);
+                    }
+                }
+            }
+            List<Overlap> overlaps = new ArrayList<>(common.size());
+            for (int slot = 0; slot < common.capacity(); slot++) {
+                long other = common.keyAt(slot);
+                if (other != 0) {
+                    overlaps.add(new Overlap(other, common.countAt(slot), filmsByUser.get((int) other).length));
+                }
+            }
+            return overlaps;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Пользователи, у которых с прошлого вызова могли измениться соседи: сами менявшие лайки и все, кто лайкнул
+    // изменившиеся фильмы. Накопленные изменения при этом сбрасываются. Удалённые пользователи не возвращаются
+    public Set<Long> takeChangedUsers() {
+        Set<Integer> users;
+        Set<Integer> films;
+        lock.writeLock().lock();
+        try {
+            users = changedUsers;
+            films = changedFilms;
+            changedUsers = new HashSet<>();
+            changedFilms = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Set<Long> result = new HashSet<>();
+        users.forEach(user -> result.add(user.longValue()));
+        for (Integer film : films) {
+            for (int user : getLikers(film.longValue())) {
+                result.add((long) user);
+            }
+        }
+        return result;
+    }
+
+    public int getUserCount() {
+        lock.readLock().lock();
+        try {
+            return filmsByUser.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getFilmCount() {
+        lock.readLock().lock();
+        try {
+            return usersByFilm.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getLikeCount() {
+        lock.readLock().lock();
+        try {
+            return likes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Оценка занимаемой памяти: обе стороны матрицы и версии пользователей
+    public long getEstimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long rows = filmsByUser.size() + usersByFilm.size();
+            return rows * (MAP_ENTRY_BYTES + BOXED_BYTES + ARRAY_HEADER_BYTES)
+                    + 2 * likes * Integer.BYTES
+                    + versions.size() * (MAP_ENTRY_BYTES + 2 * BOXED_BYTES);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Массивы фильмов должны быть отсортированы по возрастанию и без повторов
+    public void rebuild(Map<Integer, int[]> newFilmsByUser) {
+        // Массивы пользователей по фильмам: сначала размеры, затем заполнение в порядке id пользователей
+        Map<Integer, int[]> sizes = new HashMap<>();
+        newFilmsByUser.values().forEach(films -> {
+            for (int film : films) {
+                sizes.computeIfAbsent(film, k -> new int[1])[0]++;
+            }
+        });
+        Map<Integer, int[]> newUsersByFilm = new HashMap<>();
+        sizes.forEach((film, size) -> {
+            newUsersByFilm.put(film, new int[size[0]]);
+            size[0] = 0;
+        });
+        newFilmsByUser.keySet().stream().sorted().forEach(user -> {
+            for (int film : newFilmsByUser.get(user)) {
+                newUsersByFilm.get(film)[sizes.get(film)[0]++] = user;
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            filmsByUser.clear();
+            usersByFilm.clear();
+            versions.clear();
+            changedUsers.clear();
+            changedFilms.clear();
+            likes = 0;
+            newFilmsByUser.forEach((user, films) -> {
+                if (films.length > 0) {
+                    filmsByUser.put(user, films);
+                    likes += films.length;
+                    touch(user);
+                }
+            });
+            usersByFilm.putAll(newUsersByFilm);
+            log.info("Матрица лайков перестроена: пользователей {}, фильмов {}, лайков {}", filmsByUser.size(),
+                    usersByFilm.size(), likes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // film_likes хранит id как INTEGER, поэтому у id вне диапазона int лайков нет
+    private static int key(Long id) {
+        return id != null && id >= 0 && id <= Integer.MAX_VALUE ? id.intValue() : NO_ID;
+    }
+
+    private void touch(int user) {
+        versions.put(user, versionSequence.incrementAndGet());
+        changedUsers.add(user);
+    }
+
+    // Вставляет value в отсортированный массив строки; false, если значение уже есть
+    private static boolean insert(Map<Integer, int[]> rows, int row, int value) {
+        int[] values = rows.getOrDefault(row, EMPTY);
+        int position = Arrays.binarySearch(values, value);
+        if (position >= 0) {
+            return false;
+        }
+        int insertAt = -position - 1;
+        int[] updated = new int[values.length + 1];
+        System.arraycopy(values, 0, updated, 0, insertAt);
+        updated[insertAt] = value;
+        System.arraycopy(values, insertAt, updated, insertAt + 1, values.length - insertAt);
+        rows.put(row, updated);
+        return true;
+    }
+
+    // Убирает value из массива строки, пустая строка удаляется; false, если значения не было
+    private static boolean delete(Map<Integer, int[]> rows, int row, int value) {
+        int[] values = rows.get(row);
+        int position = values != null ? Arrays.binarySearch(values, value) : -1;
+        if (position < 0) {
+            return false;
+        }
+        if (values.length == 1) {
+            rows.remove(row);
+        } else {
+            int[] updated = new int[values.length - 1];
+            System.arraycopy(values, 0, updated, 0, position);
+            System.arraycopy(values, position + 1, updated, position, values.length - position - 1);
+            rows.put(row, updated);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.index;
+
+// Счётчики по ключам long без упаковки: открытая адресация с линейным пробированием в двух параллельных
+// массивах. Ключ 0 означает пустую ячейку, поэтому считать можно только ненулевые ключи (id пользователей).
+// Таблица растёт вдвое при заполнении больше чем на 2/3. Не потокобезопасен, создаётся на один расчёт
+final class LongIntCounter {
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] counts;
+    private int mask;
+    private int size;
+
+    LongIntCounter(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedKeys + expectedKeys / 2) - 1) << 1;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    void increment(long key) {
+        int slot = slot(key);
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = 1;
+        if (++size * 3 > keys.length * 2) {
+            grow();
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Обход ячеек по номеру от 0 до capacity() - 1: пустая ячейка имеет ключ 0
+    int capacity() {
+        return keys.length;
+    }
+
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    int countAt(int slot) {
+        return counts[slot];
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    // Последовательные id перемешиваются, иначе соседние ключи занимали бы соседние ячейки длинными сериями
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
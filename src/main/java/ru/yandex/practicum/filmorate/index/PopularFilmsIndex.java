@@ -0,0 +1,183 @@
+package ru.yandex.practicum.filmorate.index;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Индекс популярных фильмов в памяти: фильмы упорядочены по числу лайков (по убыванию, при равенстве - по id)
+// и дополнительно разложены по жанрам и годам выпуска. Позволяет отвечать на /films/popular без film_likes.
+// Любое изменение увеличивает версию, по ней кэш ответов /films/popular видит, что ответ устарел.
+@Slf4j
+@Component
+public class PopularFilmsIndex {
+
+    private static final Comparator<Entry> BY_LIKES = Comparator.comparingInt(Entry::likes).reversed()
+            .thenComparingLong(Entry::filmId);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final NavigableSet<Entry> all = new TreeSet<>(BY_LIKES);
+    private final Map<Long, NavigableSet<Entry>> byGenre = new HashMap<>();
+    private final Map<Integer, NavigableSet<Entry>> byYear = new HashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    public record Entry(long filmId, int likes, Integer year, Set<Long> genreIds) {
+    }
+
+    public void putFilm(Long filmId, LocalDate releaseDate, Collection<Long> genreIds) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.get(filmId);
+            int likes = old != null ? old.likes() : 0;
+            if (old != null) {
+                unlink(old);
+            }
+            link(new Entry(filmId, likes, releaseDate != null ? releaseDate.getYear() : null, Set.copyOf(genreIds)));
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(Long filmId) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.get(filmId);
+            if (old != null) {
+                unlink(old);
+                version.incrementAndGet();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void changeLikes(Long filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Entry old = entries.get(filmId);
+            if (old == null) {
+                log.warn("Изменение лайков фильма с id = {}, отсутствующего в индексе популярных", filmId);
+                return;
+            }
+            unlink(old);
+            link(new Entry(old.filmId(), Math.max(0, old.likes() + delta), old.year(), old.genreIds()));
+            version.incrementAndGet();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public int getLikes(Long filmId) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            return entry != null ? entry.likes() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Set<Long> getFilmIds() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(entries.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Если заданы и жанр, и год, обходим меньшую из двух корзин, а второй фильтр проверяем по записи
+    public List<Long> getTop(int count, Long genreId, Integer year) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entry> source = all;
+            if (genreId != null) {
+                source = byGenre.getOrDefault(genreId, Collections.emptyNavigableSet());
+            }
+            if (year != null) {
+                NavigableSet<Entry> yearSet = byYear.getOrDefault(year, Collections.emptyNavigableSet());
+                if (genreId == null || yearSet.size() < source.size()) {
+                    source = yearSet;
+                }
+            }
+            List<Long> result = new ArrayList<>(Math.min(count, source.size()));
+            for (Entry entry : source) {
+                if (result.size() >= count) {
+                    break;
+                }
+                if (genreId != null && !entry.genreIds().contains(genreId)) {
+                    continue;
+                }
+                if (year != null && !year.equals(entry.year())) {
+                    continue;
+                }
+                result.add(entry.filmId());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void rebuild(Collection<Entry> newEntries) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            all.clear();
+            byGenre.clear();
+            byYear.clear();
+            newEntries.forEach(this::link);
+            version.incrementAndGet();
+            log.info("Индекс популярных фильмов перестроен, фильмов: {}", entries.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void link(Entry entry) {
+        entries.put(entry.filmId(), entry);
+        all.add(entry);
+        for (Long genreId : entry.genreIds()) {
+            byGenre.computeIfAbsent(genreId, k -> new TreeSet<>(BY_LIKES)).add(entry);
+        }
+        if (entry.year() != null) {
+            byYear.computeIfAbsent(entry.year(), k -> new TreeSet<>(BY_LIKES)).add(entry);
+        }
+    }
+
+    private void unlink(Entry entry) {
+        entries.remove(entry.filmId());
+        all.remove(entry);
+        for (Long genreId : entry.genreIds()) {
+            NavigableSet<Entry> genreSet = byGenre.get(genreId);
+            if (genreSet != null) {
+                genreSet.remove(entry);
+            }
+        }
+        if (entry.year() != null) {
+            NavigableSet<Entry> yearSet = byYear.get(entry.year());
+            if (yearSet != null) {
+                yearSet.remove(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package ru.yandex.practicum.filmorate.index;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dto.RecommendationStats;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+// Рекомендации по похожим пользователям. Таблица ближайших соседей пересчитывается фоновой задачей
+// в отдельном ForkJoinPool по матрице лайков, и только для пользователей, чьи пересечения с другими могли
+// измениться с прошлого пересчёта; после перестроения матрицы это все пользователи. Если лайки пользователя
+// изменились после расчёта, его соседи пересчитываются при запросе, тоже только по данным в памяти.
+@Slf4j
+@Component
+public class RecommendationEngine {
+    private final LikesMatrix likesMatrix;
+    private final int neighborCount;
+    private final Similarity similarity;
+    private final ForkJoinPool pool;
+    private final Map<Long, Neighbors> neighbors = new ConcurrentHashMap<>();
+    private volatile long lastRefreshMillis;
+    private volatile long lastRefreshDurationMillis;
+    private volatile int lastRefreshUsers;
+
+    public enum Similarity {
+        COMMON,  // число общих лайков, как в прежнем SQL-запросе
+        JACCARD, // общие / объединение
+        COSINE   // общие / sqrt(лайки первого * лайки второго)
+    }
+
+    private record Neighbors(long version, long[] userIds, double[] scores) {
+    }
+
+    private record Candidate(long userId, double score, int common) {
+    }
+
+    public RecommendationEngine(LikesMatrix likesMatrix,
+                                @Value("${filmorate.recommendations.neighbors:1}") int neighborCount,
+                                @Value("${filmorate.recommendations.similarity:common}") String similarity,
+                                @Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        this.likesMatrix = likesMatrix;
+        this.neighborCount = Math.max(1, neighborCount);
+        this.similarity = Similarity.valueOf(similarity.trim().toUpperCase(Locale.ROOT));
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Scheduled(initialDelayString = "${filmorate.recommendations.refresh-interval-ms:60000}",
+            fixedDelayString = "${filmorate.recommendations.refresh-interval-ms:60000}")
+    public void refresh() {
+        long start = System.currentTimeMillis();
+        List<Long> userIds = new ArrayList<>(likesMatrix.takeChangedUsers());
+        try {
+            pool.submit(() -> userIds.parallelStream().forEach(this::refreshUser)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            log.error("Ошибка при пересчёте таблицы соседей", e.getCause());
+            return;
+        }
+        lastRefreshMillis = System.currentTimeMillis();
+        lastRefreshDurationMillis = lastRefreshMillis - start;
+        lastRefreshUsers = userIds.size();
+        log.info("Таблица соседей пересчитана для {} пользователей за {} мс", userIds.size(), lastRefreshDurationMillis);
+    }
+
+    // id рекомендованных фильмов: лайкнутые соседями и не лайкнутые самим пользователем,
+    // по убыванию суммарной похожести лайкнувших соседей, при равенстве - по id
+    public List<Long> recommend(Long userId) {
+        Neighbors current = neighbors.get(userId);
+        if (current == null || current.version() != likesMatrix.getVersion(userId)) {
+            current = recompute(userId);
+        }
+        if (current.userIds().length == 0) {
+            return List.of();
+        }
+        int[] own = likesMatrix.getLikedFilms(userId);
+        Map<Long, Double> scores = new HashMap<>();
+        for (int i = 0; i < current.userIds().length; i++) {
+            double score = current.scores()[i];
+            // Оба массива отсортированы: фильмы соседа, которых нет у пользователя, - за один проход
+            int[] films = likesMatrix.getLikedFilms(current.userIds()[i]);
+            int j = 0;
+            for (int film : films) {
+                while (j < own.length && own[j] < film) {
+                    j++;
+                }
+                if (j == own.length || own[j] != film) {
+                    scores.merge((long) film, score, Double::sum);
+                }
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public void forget(Long userId) {
+        neighbors.remove(userId);
+    }
+
+    public RecommendationStats getStats() {
+        return RecommendationStats.builder()
+                .users(likesMatrix.getUserCount())
+                .likes(likesMatrix.getLikeCount())
+                .films(likesMatrix.getFilmCount())
+                .estimatedBytes(likesMatrix.getEstimatedBytes())
+                .neighborTableSize(neighbors.size())
+                .neighborCount(neighborCount)
+                .similarity(similarity.name())
+                .lastRefreshMillis(lastRefreshMillis)
+                .lastRefreshDurationMillis(lastRefreshDurationMillis)
+                .lastRefreshUsers(lastRefreshUsers)
+                .build();
+    }
+
+    // Пользователь без лайков или удалённый больше не нужен в таблице
+    private void refreshUser(Long userId) {
+        if (likesMatrix.getLikedFilms(userId).length == 0) {
+            neighbors.remove(userId);
+        } else {
+            recompute(userId);
+        }
+    }
+
+    private Neighbors recompute(Long userId) {
+        // Версию читаем до расчёта: если лайки изменятся во время него, запись сразу окажется устаревшей
+        long version = likesMatrix.getVersion(userId);
+        List<LikesMatrix.Overlap> overlaps = likesMatrix.getOverlaps(userId);
+        int liked = likesMatrix.getLikedFilms(userId).length;
+
+        // Лучшие соседи: больше похожесть, затем больше общих лайков, затем меньше id
+        Comparator<Candidate> order = Comparator.comparingDouble(Candidate::score)
+                .thenComparingInt(Candidate::common)
+                .thenComparing(Comparator.comparingLong(Candidate::userId).reversed());
+        PriorityQueue<Candidate> top = new PriorityQueue<>(neighborCount + 1, order);
+        for (LikesMatrix.Overlap overlap : overlaps) {
+            top.add(new Candidate(overlap.userId(), score(overlap, liked), overlap.common()));
+            if (top.size() > neighborCount) {
+                top.poll();
+            }
+        }
+        List<Candidate> best = new ArrayList<>(top);
+        best.sort(order.reversed());
+        long[] userIds = new long[best.size()];
+        double[] scores = new double[best.size()];
+        for (int i = 0; i < best.size(); i++) {
+            userIds[i] = best.get(i).userId();
+            scores[i] = best.get(i).score();
+        }
+        Neighbors result = new Neighbors(version, userIds, scores);
+        neighbors.put(userId, result);
+        return result;
+    }
+
+    private double score(LikesMatrix.Overlap overlap, int liked) {
+        return switch (similarity) {
+            case COMMON -> overlap.common();
+            case JACCARD -> (double) overlap.common() / (liked + overlap.liked() - overlap.common());
+            case COSINE -> overlap.common() / Math.sqrt((double) liked * overlap.liked());
+        };
+    }
+}
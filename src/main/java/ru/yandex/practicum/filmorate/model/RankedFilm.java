@@ -0,0 +1,5 @@
+package ru.yandex.practicum.filmorate.model;
+
+// Фильм вместе с ключом сортировки списка, по которому строится курсор следующей страницы
+public record RankedFilm(Film film, long[] cursorKey) {
+}
@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Число SQL-запросов и их суммарное время на HTTP-запрос: гистограммы filmorate.sql.statements
+// и filmorate.sql.time по шаблону URI, заголовки X-Sql-Count и X-Sql-Time-Ms (включаются в dev)
+// и предупреждение в лог, если запрос одной формы повторился больше repeat-threshold раз (признак N+1).
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlStatementFilter extends OncePerRequestFilter {
+    private final MeterRegistry meterRegistry;
+    private final boolean headers;
+    private final int repeatThreshold;
+
+    public SqlStatementFilter(MeterRegistry meterRegistry,
+                              @Value("${filmorate.sql-stats.headers:false}") boolean headers,
+                              @Value("${filmorate.sql-stats.repeat-threshold:10}") int repeatThreshold) {
+        this.meterRegistry = meterRegistry;
+        this.headers = headers;
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementStats stats = SqlStatementTracker.begin();
+        StatsHeaderResponse wrapper = new StatsHeaderResponse(response, stats);
+        try {
+            chain.doFilter(request, wrapper);
+        } finally {
+            SqlStatementTracker.end(stats);
+            wrapper.writeHeaders();
+            report(request, stats);
+        }
+    }
+
+    private void report(HttpServletRequest request, SqlStatementStats stats) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod().toUpperCase(Locale.ROOT);
+        DistributionSummary.builder("filmorate.sql.statements")
+                .description("SQL-запросов на HTTP-запрос")
+                .tag("method", method)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        Timer.builder("filmorate.sql.time")
+                .description("Суммарное время SQL-запросов на HTTP-запрос")
+                .tag("method", method)
+                .tag("uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(stats.getNanos(), TimeUnit.NANOSECONDS);
+        stats.getByShape().forEach((shape, count) -> {
+            if (count > repeatThreshold) {
+                log.warn("Возможный N+1: {} {} выполнил {} раз запрос {}", method, request.getRequestURI(), count, shape);
+            }
+        });
+    }
+
+    // Заголовки выставляются перед первой записью тела: к этому моменту запросы к БД уже выполнены
+    private class StatsHeaderResponse extends HttpServletResponseWrapper {
+        private final SqlStatementStats stats;
+        private boolean written;
+
+        StatsHeaderResponse(HttpServletResponse response, SqlStatementStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        void writeHeaders() {
+            if (!headers || written || isCommitted()) {
+                return;
+            }
+            written = true;
+            setHeader("X-Sql-Count", String.valueOf(stats.getStatements()));
+            setHeader("X-Sql-Time-Ms", String.format(Locale.ROOT, "%.3f", stats.getMillis()));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Счётчики SQL-запросов одного отслеживаемого участка (обычно HTTP-запроса). Используется из одного потока.
+public class SqlStatementStats {
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern NUMBER = Pattern.compile("\\b\\d+\\b");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private int statements;
+    private long nanos;
+    private final Map<String, Integer> bySql = new HashMap<>();
+
+    void record(String sql, long elapsedNanos) {
+        statements++;
+        nanos += elapsedNanos;
+        bySql.merge(sql != null ? sql : "?", 1, Integer::sum);
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public double getMillis() {
+        return nanos / 1_000_000.0;
+    }
+
+    // Тексты выполненных запросов в том виде, в каком они ушли в драйвер
+    public Set<String> getSqls() {
+        return Set.copyOf(bySql.keySet());
+    }
+
+    // Число запросов по форме: списки IN (?, ?, ...) и числовые литералы сворачиваются, пробелы схлопываются.
+    // Нормализация делается здесь, а не на каждом запросе
+    public Map<String, Integer> getByShape() {
+        Map<String, Integer> result = new HashMap<>();
+        bySql.forEach((sql, count) -> result.merge(shape(sql), count, Integer::sum));
+        return result;
+    }
+
+    static String shape(String sql) {
+        String result = SPACES.matcher(sql.trim()).replaceAll(" ");
+        result = IN_LIST.matcher(result).replaceAll("(?)");
+        return NUMBER.matcher(result).replaceAll("?");
+    }
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+
+// Учёт SQL-запросов текущего потока. Участки могут быть вложенными (например, тест оборачивает
+// HTTP-запрос, который отслеживает фильтр): запрос засчитывается всем открытым участкам.
+// Запросы из других потоков (фоновая запись событий, потоковая выдача ответа) сюда не попадают.
+public final class SqlStatementTracker {
+    private static final ThreadLocal<Deque<SqlStatementStats>> ACTIVE = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private SqlStatementTracker() {
+    }
+
+    public static SqlStatementStats begin() {
+        SqlStatementStats stats = new SqlStatementStats();
+        ACTIVE.get().push(stats);
+        return stats;
+    }
+
+    public static void end(SqlStatementStats stats) {
+        Deque<SqlStatementStats> active = ACTIVE.get();
+        active.remove(stats);
+        if (active.isEmpty()) {
+            ACTIVE.remove();
+        }
+    }
+
+    public static <T> T track(SqlStatementStats stats, Callable<T> action) throws Exception {
+        ACTIVE.get().push(stats);
+        try {
+            return action.call();
+        } finally {
+            end(stats);
+        }
+    }
+
+    static boolean isActive() {
+        Deque<SqlStatementStats> active = ACTIVE.get();
+        if (active.isEmpty()) {
+            ACTIVE.remove();
+            return false;
+        }
+        return true;
+    }
+
+    static void record(String sql, long elapsedNanos) {
+        for (SqlStatementStats stats : ACTIVE.get()) {
+            stats.record(sql, elapsedNanos);
+        }
+    }
+}
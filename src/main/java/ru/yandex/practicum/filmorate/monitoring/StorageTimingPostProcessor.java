@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Таймер filmorate.storage на каждый метод интерфейсов из пакета storage (FilmStorage, UserStorage и т.д.)
+// с тегами storage, method и exception. Хранилища оборачиваются прокси так же, как для @Transactional;
+// вызовы методов хранилища изнутри него самого не учитываются.
+@Component
+public class StorageTimingPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+    private static final String STORAGE_PACKAGE = FilmStorage.class.getPackageName();
+
+    public StorageTimingPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        setProxyTargetClass(true);
+        setBeforeExistingAdvisors(true);
+        this.advisor = new DefaultPointcutAdvisor(new StoragePointcut(), new TimingInterceptor(meterRegistry));
+    }
+
+    private static Class<?> storageInterface(Method method, Class<?> targetClass) {
+        for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(targetClass)) {
+            if (type.getPackageName().equals(STORAGE_PACKAGE)
+                    && ClassUtils.hasMethod(type, method.getName(), method.getParameterTypes())) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    private static class StoragePointcut extends StaticMethodMatcherPointcut {
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            return storageInterface(method, targetClass) != null;
+        }
+    }
+
+    private static class TimingInterceptor implements MethodInterceptor {
+        private final ObjectProvider<MeterRegistry> meterRegistry;
+        private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+        TimingInterceptor(ObjectProvider<MeterRegistry> meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            long start = System.nanoTime();
+            try {
+                Object result = invocation.proceed();
+                timers.computeIfAbsent(invocation.getMethod(), method -> timer(invocation, "none"))
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (Throwable e) {
+                timer(invocation, e.getClass().getSimpleName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        }
+
+        private Timer timer(MethodInvocation invocation, String exception) {
+            Class<?> targetClass = AopUtils.getTargetClass(invocation.getThis());
+            Class<?> storage = storageInterface(invocation.getMethod(), targetClass);
+            return Timer.builder("filmorate.storage")
+                    .description("Время выполнения методов хранилищ")
+                    .tag("storage", storage != null ? storage.getSimpleName() : targetClass.getSimpleName())
+                    .tag("method", invocation.getMethod().getName())
+                    .tag("exception", exception)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry.getObject());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Счётчик filmorate.storage.writes: сколько записей реально изменено, с тегами entity и operation.
+// Повторный лайк или удаление несуществующей дружбы не считаются.
+@Component
+@RequiredArgsConstructor
+public class StorageWriteCounters {
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public void record(String entity, String operation, int rows) {
+        if (rows <= 0) {
+            return;
+        }
+        counters.computeIfAbsent(entity + ":" + operation, key -> Counter.builder("filmorate.storage.writes")
+                        .description("Записано строк по сущностям")
+                        .tag("entity", entity)
+                        .tag("operation", operation)
+                        .register(meterRegistry))
+                .increment(rows);
+    }
+}
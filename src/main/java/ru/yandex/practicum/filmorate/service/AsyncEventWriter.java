@@ -0,0 +1,232 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ErrorAddingData;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.storage.EventStorage;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Отложенная пакетная запись ленты событий. События попадают в ограниченную очередь и записываются
+// одним фоновым потоком через пакетный INSERT. Забирать события из очереди и писать их в БД можно
+// только под writeLock, поэтому event_id выдаются строго в порядке публикации и лента пользователя
+// не перемешивается. Если очередь переполнена дольше offer-timeout-ms, публикующий поток сам
+// записывает накопленное вместе со своими событиями.
+// Забранные из очереди события лежат в pending, пока не записаны: при сбое БД они остаются в начале
+// pending, и фоновый поток повторяет запись с растущей паузой. pending ограничен ёмкостью очереди,
+// новые события сверх неё отклоняются с ошибкой, а не копятся в памяти.
+@Slf4j
+@Component
+public class AsyncEventWriter implements SmartLifecycle {
+    private static final long MAX_RETRY_DELAY_MS = 10_000;
+
+    private final EventStorage eventStorage;
+    private final BlockingQueue<Event> queue;
+    // Забраны из очереди, но ещё не записаны; доступ только под writeLock
+    private final Deque<Event> pending = new ArrayDeque<>();
+    private final int maxPending;
+    private final int flushSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile boolean running;
+    private volatile Thread writerThread;
+
+    public AsyncEventWriter(EventStorage eventStorage,
+                            @Value("${filmorate.events.queue-capacity:10000}") int queueCapacity,
+                            @Value("${filmorate.events.flush-size:500}") int flushSize,
+                            @Value("${filmorate.events.flush-interval-ms:200}") long flushIntervalMs,
+                            @Value("${filmorate.events.offer-timeout-ms:100}") long offerTimeoutMs) {
+        this.eventStorage = eventStorage;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxPending = queueCapacity;
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+    }
+
+    public void publish(Event event) {
+        publishAll(List.of(event));
+    }
+
+    // События массовой операции встают в очередь так же, как одиночные, и пишутся фоновым потоком.
+    // Если очередь переполнена, событие, не поместившееся в неё, и все следующие записываются в потоке запроса
+    public void publishAll(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!running) {
+            // До старта и после остановки пишем синхронно, но всё равно после уже накопленных событий
+            flush(events);
+            return;
+        }
+        for (int i = 0; i < events.size(); i++) {
+            if (!offer(events.get(i))) {
+                overflows.incrementAndGet();
+                log.warn("Очередь событий переполнена, {} событий записываются в потоке запроса", events.size() - i);
+                flush(events.subList(i, events.size()));
+                return;
+            }
+        }
+        if (!running) {
+            // Остановка случилась, пока события вставали в очередь: финальный сброс мог их не застать
+            flush();
+        } else if (queue.size() >= flushSize) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    private boolean offer(Event event) {
+        try {
+            return queue.offer(event, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Возвращает false, если запись не удалась: незаписанные события остаются в pending до следующей попытки
+    public boolean flush() {
+        return flush(List.of());
+    }
+
+    private boolean flush(List<Event> extra) {
+        writeLock.lock();
+        boolean extraTaken = false;
+        try {
+            drainQueue();
+            while (!pending.isEmpty()) {
+                writePending();
+                drainQueue();
+            }
+            pending.addAll(extra);
+            extraTaken = true;
+            while (!pending.isEmpty()) {
+                writePending();
+            }
+            return true;
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            log.error("Не удалось записать события, {} ожидают повторной записи", pending.size(), e);
+            // События вызывающего встают после накопленных, если для них есть место и очередь разобрана
+            if (!extraTaken && !extra.isEmpty()) {
+                if (!queue.isEmpty() || pending.size() + extra.size() > maxPending) {
+                    throw new ErrorAddingData("Лента событий недоступна: не записано " + pending.size() + " событий");
+                }
+                pending.addAll(extra);
+            }
+            return false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void drainQueue() {
+        queue.drainTo(pending, maxPending - pending.size());
+    }
+
+    // Записывает первые flushSize событий из pending и убирает из него записанные. Если запись не удалась
+    // из-за сбоя БД, исключение выходит наружу, а события остаются на месте, и порядок event_id не нарушается
+    private void writePending() {
+        List<Event> batch = pending.stream().limit(flushSize).toList();
+        try {
+            eventStorage.addEvents(batch);
+        } catch (DataIntegrityViolationException e) {
+            // Например, пользователь удалён, пока его событие ждало записи: пишем по одному и пропускаем такие
+            log.warn("Пакет из {} событий не записан целиком, записываем по одному: {}", batch.size(), e.getMessage());
+            writeOneByOne(batch.size());
+            return;
+        }
+        batch.forEach(event -> pending.poll());
+        written.addAndGet(batch.size());
+        batches.incrementAndGet();
+    }
+
+    private void writeOneByOne(int count) {
+        for (int i = 0; i < count; i++) {
+            Event event = pending.peek();
+            try {
+                eventStorage.addEvent(event);
+                written.incrementAndGet();
+            } catch (DataIntegrityViolationException rowError) {
+                log.warn("Событие {} пропущено: {}", event, rowError.getMessage());
+            }
+            pending.poll();
+        }
+        batches.incrementAndGet();
+    }
+
+    // Ошибка одной попытки не останавливает поток: при сбое пауза перед повтором растёт до MAX_RETRY_DELAY_MS
+    private void runWriter() {
+        long delayMs = flushIntervalMs;
+        boolean retry = false;
+        while (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(delayMs));
+            try {
+                if (retry || !queue.isEmpty()) {
+                    retry = !flush();
+                }
+            } catch (RuntimeException e) {
+                log.error("Ошибка в потоке записи событий", e);
+                retry = true;
+            }
+            delayMs = retry ? Math.min(delayMs * 2, MAX_RETRY_DELAY_MS) : flushIntervalMs;
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::runWriter, "event-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Отложенная запись событий запущена: очередь {}, пакет {}, интервал {} мс",
+                queue.remainingCapacity(), flushSize, flushIntervalMs);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = writerThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!flush()) {
+            log.error("При остановке часть событий не записана");
+        }
+        log.info("Отложенная запись событий остановлена: записано {} событий в {} пакетах, переполнений {}, " +
+                "сбоев записи {}", written.get(), batches.get(), overflows.get(), failures.get());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Останавливаемся после веб-сервера, чтобы успеть записать события последних запросов
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+}
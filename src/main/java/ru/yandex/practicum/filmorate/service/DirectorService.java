@@ -25,6 +25,10 @@ public class DirectorService {
         return directorStorage.getAllDirectors();
     }
 
+    public List<DirectorDto> getDirectorsPage(Integer afterId, int limit) {
+        return directorStorage.getDirectorsPage(afterId, limit);
+    }
+
     public Optional<DirectorDto> getDirectorById(Integer id) {
         log.info("В классе {} запущен метод по получению режиссера с id = {}", DirectorService.class.getName(), id);
         return Optional.ofNullable(directorStorage.getDirectorById(id).getDirectorDto());
@@ -8,6 +8,7 @@ import ru.yandex.practicum.filmorate.storage.EventStorage;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -15,15 +16,28 @@ public class EventService {
 
     private final EventStorage eventStorage;
     private final UserStorage userStorage;
+    private final AsyncEventWriter asyncEventWriter;
 
     public void addEvent(Event event) {
-        eventStorage.addEvent(event);
+        asyncEventWriter.publish(event);
     }
 
-    public List<Event> getUserFeed(Long userId) {
-        if (userStorage.getUserById(userId) == null) {
+    public void addEvents(List<Event> events) {
+        asyncEventWriter.publishAll(events);
+    }
+
+    public void flush() {
+        asyncEventWriter.flush();
+    }
+
+    // Пользователь проверяется сразу, а события читаются из БД лениво - когда ответ начнут записывать.
+    // Без afterEventId и limit возвращается вся лента в порядке event_id
+    public Consumer<Consumer<Event>> getUserFeed(Long userId, Long afterEventId, Integer limit) {
+        if (!userStorage.existsById(userId)) {
             throw new NotFoundException("Пользователь с id - " + userId + " не найден");
         }
-        return eventStorage.getUserFeed(userId);
+        // Лента должна включать события, ещё ожидающие записи в очереди
+        asyncEventWriter.flush();
+        return consumer -> eventStorage.streamUserFeed(userId, afterEventId, limit, consumer);
     }
 }
@@ -1,20 +1,30 @@
 package ru.yandex.practicum.filmorate.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.event.Event;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.RankedFilm;
 import ru.yandex.practicum.filmorate.model.event.EventOperation;
 import ru.yandex.practicum.filmorate.model.event.EventType;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
+@Slf4j
 @RequiredArgsConstructor
 @Service
 public class FilmService {
+    private static final int LIKES_BATCH_SIZE = 1000;
+    private static final int LIKES_BATCH_ATTEMPTS = 3;
+
     @Qualifier("filmDbStorage")
     private final FilmStorage filmStorage;
     private final EventService eventService;
@@ -31,6 +41,14 @@ public class FilmService {
         return filmStorage.getAllFilms();
     }
 
+    public Consumer<Consumer<Film>> streamAllFilms() {
+        return consumer -> filmStorage.streamAllFilms(consumer);
+    }
+
+    public List<Film> getFilmsPage(Long afterId, int limit) {
+        return filmStorage.getFilmsPage(afterId, limit);
+    }
+
     public void addLike(Long filmId, Long userId) {
         filmStorage.addLike(filmId, userId);
 
@@ -45,6 +63,48 @@ public class FilmService {
         eventService.addEvent(event);
     }
 
+    // Лайки вставляются пачками по LIKES_BATCH_SIZE, и на каждую пачку события ленты пишутся одним пакетом.
+    // В отличие от одиночного лайка, событие пишется только для действительно добавленного лайка.
+    // Возвращает число вставленных строк для каждого лайка: 1 для нового, 0 для уже существующего
+    public int[] addLikes(List<FilmLike> likes) {
+        int[] inserted = new int[likes.size()];
+        for (int from = 0; from < likes.size(); from += LIKES_BATCH_SIZE) {
+            List<FilmLike> chunk = likes.subList(from, Math.min(from + LIKES_BATCH_SIZE, likes.size()));
+            int[] chunkInserted = insertLikes(chunk);
+            System.arraycopy(chunkInserted, 0, inserted, from, chunkInserted.length);
+
+            long timestamp = System.currentTimeMillis();
+            List<Event> events = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                if (chunkInserted[i] > 0) {
+                    events.add(Event.builder()
+                            .timestamp(timestamp)
+                            .userId(chunk.get(i).getUserId())
+                            .eventType(EventType.LIKE)
+                            .operation(EventOperation.ADD)
+                            .entityId(chunk.get(i).getFilmId())
+                            .build());
+                }
+            }
+            eventService.addEvents(events);
+        }
+        return inserted;
+    }
+
+    private int[] insertLikes(List<FilmLike> chunk) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return filmStorage.addLikes(chunk);
+            } catch (DuplicateKeyException e) {
+                // Ту же пару успел вставить параллельный запрос: пачка откатилась, а повтор уже увидит этот лайк
+                if (attempt == LIKES_BATCH_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("Пачка лайков пересеклась с параллельной вставкой, повтор {}", attempt);
+            }
+        }
+    }
+
     public void removeLike(Long filmId, Long userId) {
         filmStorage.removeLike(filmId, userId);
 
@@ -67,10 +127,22 @@ public class FilmService {
         return filmStorage.getFilmById(filmId);
     }
 
+    public boolean existsById(Long filmId) {
+        return filmStorage.existsById(filmId);
+    }
+
+    public List<Film> getFilmsByIds(Collection<Long> filmIds) {
+        return filmStorage.getFilmsByIds(filmIds);
+    }
+
     public List<Film> getFilmsByDirector(Integer directorId, String sortBy) {
         return filmStorage.getFilmsByDirector(directorId, sortBy);
     }
 
+    public List<RankedFilm> getFilmsByDirectorPage(Integer directorId, String sortBy, long[] after, int limit) {
+        return filmStorage.getFilmsByDirectorPage(directorId, sortBy, after, limit);
+    }
+
     public List<Film> getCommonFilms(Long userId, Long friendId) {
         return filmStorage.getCommonFilms(userId, friendId);
     }
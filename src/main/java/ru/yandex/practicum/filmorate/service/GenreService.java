@@ -1,25 +1,29 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.storage.GenreStorage;
 
 import java.util.List;
 
 @Service
 public class GenreService {
 
-    private final GenreStorage genreStorage;
+    private final ReferenceDataCache referenceDataCache;
 
-    public GenreService(GenreStorage genreStorage) {
-        this.genreStorage = genreStorage;
+    public GenreService(ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
     }
 
     public List<Genre> getAllGenres() {
-        return genreStorage.getAllGenres();
+        return referenceDataCache.getAllGenres();
     }
 
     public Genre getGenreById(int id) {
-        return genreStorage.getGenreById(id);
+        return referenceDataCache.getGenre(id);
+    }
+
+    public String getGenresEtag() {
+        return referenceDataCache.getGenresEtag();
     }
 }
\ No newline at end of file
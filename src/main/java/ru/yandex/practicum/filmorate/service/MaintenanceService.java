@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.dal.ExistenceIndexLoader;
+import ru.yandex.practicum.filmorate.dal.FilmSearchIndexLoader;
+import ru.yandex.practicum.filmorate.dal.FriendGraphLoader;
+import ru.yandex.practicum.filmorate.dal.LikesMatrixLoader;
+import ru.yandex.practicum.filmorate.dal.PopularFilmsIndexLoader;
+import ru.yandex.practicum.filmorate.dto.FriendGraphStats;
+import ru.yandex.practicum.filmorate.dto.IndexConsistencyReport;
+import ru.yandex.practicum.filmorate.dto.RecommendationStats;
+import ru.yandex.practicum.filmorate.dto.SearchIndexStats;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.FriendSuggestions;
+import ru.yandex.practicum.filmorate.index.RecommendationEngine;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MaintenanceService {
+    private final PopularFilmsIndexLoader popularFilmsIndexLoader;
+    private final FilmSearchIndexLoader filmSearchIndexLoader;
+    private final FilmSearchIndex filmSearchIndex;
+    private final LikesMatrixLoader likesMatrixLoader;
+    private final RecommendationEngine recommendationEngine;
+    private final ReferenceDataCache referenceDataCache;
+    private final ExistenceIndexLoader existenceIndexLoader;
+    private final FriendGraphLoader friendGraphLoader;
+    private final FriendGraph friendGraph;
+    private final FriendSuggestions friendSuggestions;
+
+    public void rebuildPopularIndex(boolean recount) {
+        log.info("Перестроение индекса популярных фильмов, пересчёт счётчиков: {}", recount);
+        popularFilmsIndexLoader.rebuild(recount);
+    }
+
+    public IndexConsistencyReport checkPopularIndex() {
+        IndexConsistencyReport report = popularFilmsIndexLoader.checkConsistency();
+        if (!report.isConsistent()) {
+            log.warn("Индекс популярных фильмов расходится с БД: {}", report);
+        }
+        return report;
+    }
+
+    public SearchIndexStats rebuildSearchIndex() {
+        log.info("Перестроение поискового индекса");
+        filmSearchIndexLoader.rebuild();
+        return filmSearchIndex.getStats();
+    }
+
+    public SearchIndexStats getSearchIndexStats() {
+        return filmSearchIndex.getStats();
+    }
+
+    public RecommendationStats rebuildRecommendations() {
+        log.info("Перестроение матрицы лайков и таблицы соседей");
+        likesMatrixLoader.rebuild();
+        recommendationEngine.refresh();
+        return recommendationEngine.getStats();
+    }
+
+    public RecommendationStats getRecommendationStats() {
+        return recommendationEngine.getStats();
+    }
+
+    public void reloadReferenceData() {
+        log.info("Перезагрузка справочников жанров и рейтингов MPA");
+        referenceDataCache.reload();
+    }
+
+    public void rebuildExistenceIndex() {
+        log.info("Перестроение индекса существования пользователей и фильмов");
+        existenceIndexLoader.rebuild();
+    }
+
+    public FriendGraphStats rebuildFriendGraph() {
+        log.info("Перестроение графа друзей");
+        friendGraphLoader.rebuild();
+        friendSuggestions.clear();
+        return friendGraph.getStats();
+    }
+
+    public FriendGraphStats getFriendGraphStats() {
+        return friendGraph.getStats();
+    }
+}
@@ -1,25 +1,29 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
 import ru.yandex.practicum.filmorate.model.MpaRating;
-import ru.yandex.practicum.filmorate.storage.MpaStorage;
 
 import java.util.List;
 
 @Service
 public class MpaService {
 
-    private final MpaStorage mpaStorage;
+    private final ReferenceDataCache referenceDataCache;
 
-    public MpaService(MpaStorage mpaStorage) {
-        this.mpaStorage = mpaStorage;
+    public MpaService(ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
     }
 
     public List<MpaRating> getAllMpaRatings() {
-        return mpaStorage.getAllMpaRatings();
+        return referenceDataCache.getAllMpaRatings();
     }
 
     public MpaRating getMpaRatingById(int id) {
-        return mpaStorage.getMpaRatingById(id);
+        return referenceDataCache.getMpa(id);
+    }
+
+    public String getMpaEtag() {
+        return referenceDataCache.getMpaEtag();
     }
 }
\ No newline at end of file
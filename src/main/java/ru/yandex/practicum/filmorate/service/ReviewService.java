@@ -87,7 +87,7 @@ public class ReviewService {
         reviewStorage.removeDislike(reviewId, userId);
     }
 
-    public List<Review> getAllReviewsSortedByUseful() {
-        return reviewStorage.getAllReviewsSortedByUseful();
+    public List<Review> getReviewsPage(Long filmId, Integer afterUseful, Long afterReviewId, int limit) {
+        return reviewStorage.getReviewsPage(filmId, afterUseful, afterReviewId, limit);
     }
 }
\ No newline at end of file
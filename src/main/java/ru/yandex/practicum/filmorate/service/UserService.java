@@ -13,6 +13,7 @@ import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 @RequiredArgsConstructor
 @Service
@@ -34,6 +35,14 @@ public class UserService {
         return userStorage.getAllUsers();
     }
 
+    public Consumer<Consumer<User>> streamAllUsers() {
+        return consumer -> userStorage.streamAllUsers(consumer);
+    }
+
+    public List<User> getUsersPage(Long afterId, int limit) {
+        return userStorage.getUsersPage(afterId, limit);
+    }
+
     public void addFriend(Long userId, Long friendId) {
         userStorage.addFriend(userId, friendId);
         Event event = Event.builder()
@@ -69,15 +78,29 @@ public class UserService {
         return userStorage.getUserById(userId);
     }
 
+    public boolean existsById(Long userId) {
+        return userStorage.existsById(userId);
+    }
+
     public List<User> getFriends(Long userId) {
         return userStorage.getFriends(userId);
     }
 
+    public List<User> getFriendsPage(Long userId, Long afterFriendId, int limit) {
+        return userStorage.getFriendsPage(userId, afterFriendId, limit);
+    }
+
+    public List<User> getSuggestions(Long userId, int limit) {
+        return userStorage.getSuggestions(userId, limit);
+    }
+
     public List<Film> getRecommendations(Long userId) {
         return userStorage.getRecommendations(userId);
     }
 
     public void deleteUser(Long userId) {
+        // События пользователя из очереди записываем до удаления, чтобы не нарушить внешний ключ
+        eventService.flush();
         userStorage.deleteUser(userId);
     }
 }
@@ -10,6 +10,8 @@ public interface DirectorStorage {
 
     List<DirectorDto> getAllDirectors();
 
+    List<DirectorDto> getDirectorsPage(Integer afterId, int limit);
+
     ResponseDirector getDirectorById(Integer id);
 
     ResponseDirector createDirector(RequestDirector request);
@@ -3,10 +3,15 @@ package ru.yandex.practicum.filmorate.storage;
 import ru.yandex.practicum.filmorate.model.event.Event;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface EventStorage {
 
     void addEvent(Event event);
 
+    void addEvents(List<Event> events);
+
     List<Event> getUserFeed(Long userId);
+
+    void streamUserFeed(Long userId, Long afterEventId, Integer limit, Consumer<Event> consumer);
 }
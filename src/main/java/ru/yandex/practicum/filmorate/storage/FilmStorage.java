@@ -1,27 +1,44 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.RankedFilm;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film addFilm(Film film);
 
+    void addFilms(List<Film> films);
+
     Film updateFilm(Film film);
 
     Collection<Film> getAllFilms();
 
+    void streamAllFilms(Consumer<Film> consumer);
+
+    List<Film> getFilmsPage(Long afterId, int limit);
+
     void addLike(Long filmId, Long userId);
 
+    int[] addLikes(List<FilmLike> likes);
+
     void removeLike(Long filmId, Long userId);
 
     Film getFilmById(Long filmId);
 
+    boolean existsById(Long filmId);
+
+    List<Film> getFilmsByIds(Collection<Long> filmIds);
+
     List<Film> getTopFilms(int count, Long genreId, Integer year);
 
     List<Film> getFilmsByDirector(Integer directorId, String sortBy);
 
+    List<RankedFilm> getFilmsByDirectorPage(Integer directorId, String sortBy, long[] after, Integer limit);
+
     List<Film> getCommonFilms(Long userId, Long friendId);
 
     List<Film> getSearchedFilms(String query, String[] searchWords);
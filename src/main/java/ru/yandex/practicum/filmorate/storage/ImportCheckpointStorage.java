@@ -0,0 +1,9 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import ru.yandex.practicum.filmorate.model.ImportCheckpoint;
+
+public interface ImportCheckpointStorage {
+    ImportCheckpoint startImport(String importId);
+
+    boolean advance(ImportCheckpoint checkpoint, long previousRecordsDone);
+}
@@ -15,6 +15,8 @@ public interface ReviewStorage {
 
     List<Review> getReviewsByFilmId(Long filmId, int count);
 
+    List<Review> getReviewsPage(Long filmId, Integer afterUseful, Long afterReviewId, int limit);
+
     void addLike(Long reviewId, Long userId);
 
     void addDislike(Long reviewId, Long userId);
@@ -22,6 +24,4 @@ public interface ReviewStorage {
     void removeLike(Long reviewId, Long userId);
 
     void removeDislike(Long reviewId, Long userId);
-
-    List<Review> getAllReviewsSortedByUseful();
 }
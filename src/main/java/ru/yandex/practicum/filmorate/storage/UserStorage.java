@@ -5,6 +5,7 @@ import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     User addUser(User user);
@@ -13,8 +14,14 @@ public interface UserStorage {
 
     Collection<User> getAllUsers();
 
+    void streamAllUsers(Consumer<User> consumer);
+
+    List<User> getUsersPage(Long afterId, int limit);
+
     User getUserById(Long userId);
 
+    boolean existsById(Long userId);
+
     void addFriend(Long userId, Long friendId);
 
     void removeFriend(Long userId, Long friendId);
@@ -23,6 +30,10 @@ public interface UserStorage {
 
     List<User> getFriends(Long userId);
 
+    List<User> getFriendsPage(Long userId, Long afterFriendId, int limit);
+
+    List<User> getSuggestions(Long userId, int limit);
+
     List<Film> getRecommendations(Long userId);
 
     void deleteUser(Long userId);
@@ -99,3 +99,44 @@ CREATE TABLE IF NOT EXISTS events (
     entity_id BIGINT NOT NULL,
     CONSTRAINT fk_user FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE
 );
+
+-- Отметки прогресса импорта каталога: сколько записей источника уже обработано и с каким итогом.
+-- Отметка пишется в одной транзакции с пачкой фильмов, по ней прерванный импорт продолжается
+CREATE TABLE IF NOT EXISTS film_import_checkpoint (
+    import_id VARCHAR(100) PRIMARY KEY,
+    records_done BIGINT NOT NULL DEFAULT 0,
+    imported BIGINT NOT NULL DEFAULT 0,
+    rejected BIGINT NOT NULL DEFAULT 0,
+    completed BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+-- Колонки, добавленные после первой версии схемы. CREATE TABLE IF NOT EXISTS не меняет существующую таблицу,
+-- поэтому в базу-файл, созданную раньше, они добавляются через ALTER TABLE ... IF NOT EXISTS.
+-- Однократные преобразования данных отмечаются в schema_migration и при следующих запусках не повторяются
+CREATE TABLE IF NOT EXISTS schema_migration (
+    name VARCHAR(100) PRIMARY KEY
+);
+
+-- Счётчик лайков фильма, поддерживается вместе с film_likes; для существующих лайков заполняется один раз
+ALTER TABLE film ADD COLUMN IF NOT EXISTS likes_count INTEGER NOT NULL DEFAULT 0;
+UPDATE film f SET likes_count = (SELECT COUNT(*) FROM film_likes l WHERE l.film_id = f.film_id)
+    WHERE NOT EXISTS (SELECT 1 FROM schema_migration WHERE name = 'film_likes_count');
+MERGE INTO schema_migration (name) VALUES ('film_likes_count');
+
+-- Год выхода для индекса популярных: загрузчик читает готовый год, а не разбирает дату в каждой строке.
+-- Фильтр по году выполняется в памяти, поэтому индекс по колонке не нужен и удаляется из созданных раньше баз
+ALTER TABLE film ADD COLUMN IF NOT EXISTS release_year INTEGER GENERATED ALWAYS AS (EXTRACT(YEAR FROM release_date));
+DROP INDEX IF EXISTS idx_film_release_year;
+
+-- Лента пользователя читается по user_id в порядке event_id, с курсором afterEventId
+CREATE INDEX IF NOT EXISTS idx_events_user_event ON events (user_id, event_id);
+
+-- Вторичные индексы для выборок не по первичному ключу. Выборка событий по user_id покрыта idx_events_user_event
+CREATE INDEX IF NOT EXISTS idx_film_likes_user ON film_likes (user_id, film_id);
+CREATE INDEX IF NOT EXISTS idx_film_genre_genre ON film_genre (genre_id, film_id);
+CREATE INDEX IF NOT EXISTS idx_films_directors_director ON films_directors (director_id);
+-- Отзывы отдаются в порядке useful DESC, review_id, в том числе страницами по курсору. Индекс заменил
+-- idx_reviews_film_useful (film_id, useful): в созданных раньше базах прежний удаляется, чтобы не обновлялся зря
+DROP INDEX IF EXISTS idx_reviews_film_useful;
+CREATE INDEX IF NOT EXISTS idx_reviews_film_useful_id ON reviews (film_id, useful DESC, review_id);
+CREATE INDEX IF NOT EXISTS idx_reviews_useful ON reviews (useful DESC, review_id);
@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import ru.yandex.practicum.filmorate.model.event.Event;
+import ru.yandex.practicum.filmorate.model.event.EventOperation;
+import ru.yandex.practicum.filmorate.model.event.EventType;
+import ru.yandex.practicum.filmorate.service.AsyncEventWriter;
+import ru.yandex.practicum.filmorate.storage.EventStorage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Запись ленты при сбоях БД: хранилище-заглушка падает заданное число раз, события не должны теряться
+class AsyncEventWriterTest {
+    private final FlakyEventStorage storage = new FlakyEventStorage();
+    private final AsyncEventWriter writer = new AsyncEventWriter(storage, 100, 10, 10, 10);
+
+    @AfterEach
+    void tearDown() {
+        writer.stop();
+    }
+
+    @Test
+    public void testEventsSurviveDatabaseFailures() throws Exception {
+        writer.start();
+        storage.failures = 3;
+        publish(1, 25);
+
+        // Фоновый поток пережил три сбоя подряд и записал всё в порядке публикации
+        awaitWritten(25);
+        assertThat(storage.userIds()).containsExactlyElementsOf(LongStream.rangeClosed(1, 25).boxed().toList());
+
+        publish(26, 30);
+        awaitWritten(30);
+    }
+
+    @Test
+    public void testRowFallbackSkipsOnlyBrokenEvents() {
+        storage.brokenUserId = 2L;
+        publish(1, 3);
+        assertThat(storage.userIds()).containsExactly(1L, 3L);
+
+        // Сбой посреди записи по одному: записанное не повторяется, остальное записывается следующей попыткой
+        storage.failOnRow = 2;
+        writer.publishAll(events(4, 6));
+        assertThat(storage.userIds()).containsExactly(1L, 3L, 4L);
+        assertThat(writer.flush()).isTrue();
+        assertThat(storage.userIds()).containsExactly(1L, 3L, 4L, 5L, 6L);
+    }
+
+    @Test
+    public void testBatchIsQueuedAndOverflowIsWrittenInOrder() {
+        // Фоновый поток сам почти не просыпается: видно, что пишет публикующий поток
+        AsyncEventWriter idleWriter = new AsyncEventWriter(storage, 100, 50, 60_000, 10);
+        idleWriter.start();
+        try {
+            idleWriter.publishAll(events(1, 5));
+            assertThat(storage.userIds()).isEmpty();
+
+            // Не поместившиеся в очередь события пишутся в потоке запроса после уже стоящих в очереди
+            idleWriter.publishAll(events(6, 150));
+            assertThat(storage.userIds()).containsExactlyElementsOf(LongStream.rangeClosed(1, 150).boxed().toList());
+        } finally {
+            idleWriter.stop();
+        }
+    }
+
+    private void publish(long fromUserId, long toUserId) {
+        events(fromUserId, toUserId).forEach(writer::publish);
+    }
+
+    private static List<Event> events(long fromUserId, long toUserId) {
+        return LongStream.rangeClosed(fromUserId, toUserId)
+                .mapToObj(userId -> Event.builder()
+                        .timestamp(System.currentTimeMillis())
+                        .userId(userId)
+                        .eventType(EventType.LIKE)
+                        .operation(EventOperation.ADD)
+                        .entityId(1L)
+                        .build())
+                .toList();
+    }
+
+    private void awaitWritten(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (storage.userIds().size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(storage.userIds()).hasSize(count);
+    }
+
+    private static class FlakyEventStorage implements EventStorage {
+        private final List<Event> events = Collections.synchronizedList(new ArrayList<>());
+        // Сколько пакетов подряд упадёт со сбоем соединения
+        private volatile int failures;
+        // Событие этого пользователя нарушает внешний ключ
+        private volatile Long brokenUserId;
+        // Номер строки при записи по одному, на которой случится сбой соединения; 0 - без сбоя
+        private volatile int failOnRow;
+        private int row;
+
+        @Override
+        public void addEvent(Event event) {
+            if (failOnRow > 0 && ++row == failOnRow) {
+                failOnRow = 0;
+                throw new TransientDataAccessResourceException("Соединение потеряно");
+            }
+            check(event);
+            events.add(event);
+        }
+
+        @Override
+        public void addEvents(List<Event> batch) {
+            if (failures > 0) {
+                failures--;
+                throw new TransientDataAccessResourceException("Соединение потеряно");
+            }
+            if (failOnRow > 0) {
+                row = 0;
+                throw new DataIntegrityViolationException("Пакет отклонён");
+            }
+            batch.forEach(this::check);
+            events.addAll(batch);
+        }
+
+        private void check(Event event) {
+            if (event.getUserId().equals(brokenUserId)) {
+                throw new DataIntegrityViolationException("Пользователь удалён");
+            }
+        }
+
+        List<Long> userIds() {
+            synchronized (events) {
+                return events.stream().map(Event::getUserId).toList();
+            }
+        }
+
+        @Override
+        public List<Event> getUserFeed(Long userId) {
+            return List.of();
+        }
+
+        @Override
+        public void streamUserFeed(Long userId, Long afterEventId, Integer limit, Consumer<Event> consumer) {
+        }
+    }
+}
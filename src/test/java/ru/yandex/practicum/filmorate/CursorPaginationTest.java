@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import ru.yandex.practicum.filmorate.controller.CursorPage;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.ReviewDbStorage;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class CursorPaginationTest {
+    private final MockMvc mockMvc;
+    private final ObjectMapper objectMapper;
+    private final UserDbStorage userStorage;
+    private final FilmDbStorage filmStorage;
+    private final ReviewDbStorage reviewStorage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testUserPagesCoverAllUsersOnce() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            userStorage.addUser(TestData.user("paged" + i));
+        }
+        List<Long> expected = userStorage.getAllUsers().stream().map(User::getId).sorted().toList();
+
+        List<JsonNode> paged = readAllPages(() -> get("/users").param("limit", "2"));
+
+        assertThat(paged).extracting(node -> node.get("id").asLong()).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void testReviewPagesKeepUsefulOrderAcrossTies() throws Exception {
+        User author = userStorage.addUser(TestData.user("reviewer"));
+        Film film = filmStorage.addFilm(TestData.film("Paged Film"));
+        int[] usefulValues = {3, -1, 3, 0, 3, -1, 5};
+        List<Review> reviews = new ArrayList<>();
+        for (int useful : usefulValues) {
+            Review review = new Review();
+            review.setContent("Paged");
+            review.setIsPositive(true);
+            review.setUserId(author.getId());
+            review.setFilmId(film.getId());
+            review = reviewStorage.addReview(review);
+            jdbcTemplate.update("UPDATE reviews SET useful = ? WHERE review_id = ?", useful, review.getReviewId());
+            review.setUseful(useful);
+            reviews.add(review);
+        }
+        List<Long> expected = reviews.stream()
+                .sorted(Comparator.comparing(Review::getUseful).reversed().thenComparing(Review::getReviewId))
+                .map(Review::getReviewId)
+                .toList();
+
+        List<JsonNode> paged = readAllPages(() -> get("/reviews")
+                .param("filmId", film.getId().toString())
+                .param("count", "2"));
+
+        assertThat(paged).extracting(node -> node.get("reviewId").asLong()).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void testDirectorPagesKeepOrderAcrossTies() throws Exception {
+        jdbcTemplate.update("INSERT INTO directors (name) VALUES ('Paged Director')");
+        Integer directorId = jdbcTemplate.queryForObject("SELECT MAX(director_id) FROM directors", Integer.class);
+        Director director = new Director();
+        director.setId(directorId);
+        int[] years = {2001, 1999, 2001, 2005, 1999, 2001, 2010};
+        int[] likes = {2, 0, 2, 7, 2, 0, 1};
+        for (int i = 0; i < years.length; i++) {
+            Film film = TestData.film("Paged Film");
+            film.setReleaseDate(LocalDate.of(years[i], 1, 1));
+            film.setDirectors(List.of(director));
+            film = filmStorage.addFilm(film);
+            jdbcTemplate.update("UPDATE film SET likes_count = ? WHERE film_id = ?", likes[i], film.getId());
+        }
+
+        for (String sortBy : List.of("year", "likes")) {
+            List<Long> expected = filmStorage.getFilmsByDirector(directorId, sortBy).stream()
+                    .map(Film::getId)
+                    .toList();
+            List<JsonNode> paged = readAllPages(() -> get("/films/director/{directorId}", directorId)
+                    .param("sortBy", sortBy)
+                    .param("limit", "2"));
+
+            assertThat(expected).hasSize(years.length);
+            assertThat(paged).extracting(node -> node.get("id").asLong()).containsExactlyElementsOf(expected);
+            assertThat(paged).allSatisfy(node -> assertThat(node.get("directors")).hasSize(1));
+        }
+        mockMvc.perform(get("/films/director/{directorId}", -1).param("sortBy", "year").param("limit", "2"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testListWithoutPagingParamsIsStreamedWhole() throws Exception {
+        userStorage.addUser(TestData.user("streamed"));
+
+        MvcResult started = mockMvc.perform(get("/users")).andExpect(request().asyncStarted()).andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(objectMapper.readTree(body)).hasSize(userStorage.getAllUsers().size());
+    }
+
+    @Test
+    public void testMalformedCursorIsRejected() throws Exception {
+        mockMvc.perform(get("/users").param("cursor", "not-a-cursor")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films").param("limit", "0")).andExpect(status().isBadRequest());
+        // Курсор корректно закодирован, но ключ не помещается в int или в диапазон дат
+        mockMvc.perform(get("/directors").param("cursor", CursorPage.encode(1L << 32)))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/director/1").param("sortBy", "year")
+                        .param("cursor", CursorPage.encode(Long.MAX_VALUE, 1)))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Проходит по страницам, пока сервер возвращает курсор следующей
+    private List<JsonNode> readAllPages(Supplier<MockHttpServletRequestBuilder> request) throws Exception {
+        List<JsonNode> items = new ArrayList<>();
+        String cursor = null;
+        do {
+            MockHttpServletRequestBuilder builder = request.get();
+            if (cursor != null) {
+                builder.param("cursor", cursor);
+            }
+            MvcResult result = mockMvc.perform(builder).andExpect(status().isOk()).andReturn();
+            objectMapper.readTree(result.getResponse().getContentAsString()).forEach(items::add);
+            cursor = result.getResponse().getHeader(CursorPage.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+        return items;
+    }
+}
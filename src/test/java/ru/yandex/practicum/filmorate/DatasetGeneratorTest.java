@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import ru.yandex.practicum.filmorate.datagen.DatasetGenerator;
+import ru.yandex.practicum.filmorate.datagen.DatasetSpec;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DatasetGeneratorTest {
+    private final DatasetSpec spec = DatasetSpec.builder()
+            .users(500)
+            .films(200)
+            .directors(20)
+            .likes(5_000)
+            .friendships(2_000)
+            .reviews(300)
+            .events(3_000)
+            .chunkSize(128)
+            .parallelism(4)
+            .build();
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:datagen-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "sa", "password");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    public void testGenerateFillsTables() {
+        new DatasetGenerator(dataSource, spec).generate();
+
+        assertThat(count("users")).isEqualTo(500);
+        assertThat(count("film")).isEqualTo(200);
+        assertThat(count("reviews")).isEqualTo(300);
+        assertThat(count("events")).isEqualTo(3_000);
+        assertThat(count("film_likes")).isBetween(3_000L, 7_000L);
+        assertThat(count("friends")).isBetween(1_000L, 3_000L);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM friends WHERE user_id = friend_id", Long.class)).isZero();
+        assertThat(jdbc.queryForObject("SELECT SUM(likes_count) FROM film", Long.class)).isEqualTo(count("film_likes"));
+
+        // После явных id автоинкремент продолжает с конца
+        jdbc.update("INSERT INTO users (email, login) VALUES ('new@example.com', 'new')");
+        assertThat(jdbc.queryForObject("SELECT MAX(user_id) FROM users", Long.class)).isEqualTo(501);
+    }
+
+    @Test
+    public void testInterruptedGenerationResumes() {
+        new DatasetGenerator(dataSource, spec).generate();
+        String likes = checksum("SELECT film_id, user_id FROM film_likes ORDER BY film_id, user_id");
+        String events = checksum("SELECT event_id, user_id, entity_id FROM events ORDER BY event_id");
+
+        // Как будто генерация оборвалась: часть порций лайков и событий не записана
+        jdbc.update("DELETE FROM film_likes WHERE user_id > 256");
+        jdbc.update("DELETE FROM datagen_checkpoint WHERE stage = 'likes' AND chunk >= 2");
+        jdbc.update("DELETE FROM events WHERE event_id > 1024");
+        jdbc.update("DELETE FROM datagen_checkpoint WHERE stage = 'events' AND chunk >= 8");
+
+        new DatasetGenerator(dataSource, spec).generate();
+
+        assertThat(checksum("SELECT film_id, user_id FROM film_likes ORDER BY film_id, user_id")).isEqualTo(likes);
+        assertThat(checksum("SELECT event_id, user_id, entity_id FROM events ORDER BY event_id")).isEqualTo(events);
+    }
+
+    @Test
+    public void testResumeWithDifferentSpecFails() {
+        new DatasetGenerator(dataSource, spec).generate();
+
+        DatasetSpec other = spec.toBuilder().seed(7).build();
+        assertThatThrownBy(() -> new DatasetGenerator(dataSource, other).generate())
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private long count(String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private String checksum(String sql) {
+        StringBuilder rows = new StringBuilder();
+        jdbc.query(sql, rs -> {
+            for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                rows.append(rs.getLong(i)).append(',');
+            }
+            rows.append(';');
+        });
+        return Integer.toHexString(rows.toString().hashCode()) + ":" + rows.length();
+    }
+}
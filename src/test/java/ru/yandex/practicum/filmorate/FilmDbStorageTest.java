@@ -1,5 +1,7 @@
 package ru.yandex.practicum.filmorate;
 
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,15 +9,36 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
 import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
 import ru.yandex.practicum.filmorate.dal.mappers.FilmRowMapper;
+import ru.yandex.practicum.filmorate.exception.NotFoundException;
+import ru.yandex.practicum.filmorate.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.index.LikesMatrix;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
 
+import javax.sql.DataSource;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @SpringBootTest
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
@@ -23,6 +46,14 @@ import static org.assertj.core.api.Assertions.assertThat;
 @Import({FilmDbStorage.class, FilmRowMapper.class}) // Импортируем FilmDbStorage и FilmRowMapper
 class FilmDbStorageTest {
     private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final FilmSearchIndex filmSearchIndex;
+    private final LikesMatrix likesMatrix;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmCache filmCache;
+    private final DataSource dataSource;
 
     private Film testFilm;
 
@@ -70,6 +101,30 @@ class FilmDbStorageTest {
         assertThat(updatedFilm.getName()).isEqualTo("Updated Film");
     }
 
+    @Test
+    public void testUpdateOfDeletedFilmDoesNotReachIndexes() {
+        Film film = filmStorage.addFilm(TestData.film("Deleted Before Update"));
+        // Удаление успело между проверкой существования в контроллере и обновлением
+        filmStorage.deleteFilm(film.getId());
+
+        assertThatThrownBy(() -> filmStorage.updateFilm(film)).isInstanceOf(NotFoundException.class);
+        assertThat(popularFilmsIndex.getFilmIds()).doesNotContain(film.getId());
+        assertThat(filmSearchIndex.search("Deleted Before Update", true, false)).doesNotContain(film.getId());
+    }
+
+    @Test
+    public void testRolledBackUpdateDoesNotReachSearchIndex() {
+        Film film = filmStorage.addFilm(TestData.film("Committed Title"));
+        film.setName("Rolled Back Title");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            filmStorage.updateFilm(film);
+            status.setRollbackOnly();
+        });
+
+        assertThat(filmSearchIndex.search("Rolled Back Title", true, false)).doesNotContain(film.getId());
+        assertThat(filmSearchIndex.search("Committed Title", true, false)).contains(film.getId());
+    }
+
     @Test
     public void testGetFilmById() {
         // Добавляем фильм
@@ -96,4 +151,192 @@ class FilmDbStorageTest {
         assertThat(films).isNotEmpty();
         assertThat(films).hasSizeGreaterThanOrEqualTo(1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRolledBackImportDoesNotReachIndexes() {
+        List<Film> films = List.of(TestData.film("Rolled Back Import"));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            filmStorage.addFilms(films);
+            status.setRollbackOnly();
+        });
+        assertThat(filmStorage.existsById(films.get(0).getId())).isFalse();
+        assertThat(filmStorage.getSearchedFilms("Rolled Back Import", new String[]{"title"})).isEmpty();
+
+        filmStorage.addFilms(films);
+        assertThat(filmStorage.existsById(films.get(0).getId())).isTrue();
+    }
+
+    @Test
+    public void testGetAllFilmsBypassesCache() {
+        Film film = filmStorage.addFilm(testFilm);
+        filmCache.invalidateAll();
+
+        assertThat(filmStorage.getAllFilms()).extracting(Film::getId).contains(film.getId());
+        // Полный список не вытесняет из кэша горячие записи
+        assertThat(filmCache.size()).isZero();
+    }
+
+    @Test
+    public void testFilmCacheEvictsLeastRecentlyUsed() {
+        FilmCache cache = new FilmCache(true, 10, 60_000, new SimpleMeterRegistry());
+        Film hot = filmWithId(1L);
+        cache.put(hot, cache.version());
+        for (long id = 2; id <= 25; id++) {
+            // Первый фильм запрашивается постоянно и не вытесняется
+            assertThat(cache.get(1L)).isNotNull();
+            cache.put(filmWithId(id), cache.version());
+            assertThat(cache.size()).isLessThanOrEqualTo(10);
+        }
+        assertThat(cache.get(1L).getName()).isEqualTo(hot.getName());
+
+        // Загрузка, начатая до инвалидации, в кэш не попадает
+        long loadVersion = cache.version();
+        cache.invalidate(30L);
+        cache.put(filmWithId(30L), loadVersion);
+        assertThat(cache.get(30L)).isNull();
+    }
+
+    @Test
+    public void testStreamAllFilmsMatchesGetAllFilms() {
+        // Фильмов больше, чем помещается в одну пачку догрузки жанров
+        for (int i = 0; i < 600; i++) {
+            filmStorage.addFilm(testFilm);
+        }
+        Genre comedy = new Genre();
+        comedy.setId(1L);
+        testFilm.setGenres(List.of(comedy));
+        Film lastFilm = filmStorage.addFilm(testFilm);
+
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.streamAllFilms(streamed::add);
+
+        assertThat(streamed).hasSameSizeAs(filmStorage.getAllFilms());
+        assertThat(streamed).extracting(Film::getId).isSorted();
+        Film streamedLast = streamed.get(streamed.size() - 1);
+        assertThat(streamedLast.getId()).isEqualTo(lastFilm.getId());
+        assertThat(streamedLast.getGenres()).extracting(Genre::getId).containsExactly(1L);
+    }
+
+    @Test
+    public void testConcurrentStreamsDoNotExhaustPool() throws Exception {
+        // Фильмов больше одной пачки, чтобы жанры догружались, пока курсор ещё открыт
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            films.add(TestData.film("Streamed Film"));
+        }
+        filmStorage.addFilms(films);
+        int streams = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize() + 5;
+
+        ExecutorService executor = Executors.newFixedThreadPool(streams);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < streams; i++) {
+                results.add(CompletableFuture.supplyAsync(() -> {
+                    await(start);
+                    AtomicInteger count = new AtomicInteger();
+                    filmStorage.streamAllFilms(film -> count.incrementAndGet());
+                    return count.get();
+                }, executor));
+            }
+            start.countDown();
+
+            // Выгрузок больше, чем соединений в пуле: все завершаются раньше таймаута ожидания соединения
+            int expected = filmStorage.getAllFilms().size();
+            for (CompletableFuture<Integer> result : results) {
+                assertThat(result.get(20, TimeUnit.SECONDS)).isEqualTo(expected);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCommonFilmsAreOrderedByLikes() {
+        User user = userStorage.addUser(TestData.user("common"));
+        User friend = userStorage.addUser(TestData.user("common"));
+        User other = userStorage.addUser(TestData.user("common"));
+        Film onlyUser = filmStorage.addFilm(TestData.film("Only User"));
+        Film lessLiked = filmStorage.addFilm(TestData.film("Less Liked"));
+        Film moreLiked = filmStorage.addFilm(TestData.film("More Liked"));
+        for (Film film : List.of(onlyUser, lessLiked, moreLiked)) {
+            filmStorage.addLike(film.getId(), user.getId());
+        }
+        filmStorage.addLike(lessLiked.getId(), friend.getId());
+        filmStorage.addLike(moreLiked.getId(), friend.getId());
+        filmStorage.addLike(moreLiked.getId(), other.getId());
+
+        assertThat(filmStorage.getCommonFilms(user.getId(), friend.getId())).extracting(Film::getId)
+                .containsExactly(moreLiked.getId(), lessLiked.getId());
+        // id за пределами INTEGER в film_likes не встречаются: у такого пользователя просто нет лайков
+        assertThat(filmStorage.getCommonFilms(user.getId(), Integer.MAX_VALUE + 1L)).isEmpty();
+        assertThat(likesMatrix.getVersion(Long.MAX_VALUE)).isZero();
+    }
+
+    @Test
+    public void testGetFilmByIdLoadsGenres() {
+        Genre drama = new Genre();
+        drama.setId(2L);
+        Genre comedy = new Genre();
+        comedy.setId(1L);
+        testFilm.setGenres(List.of(drama, comedy));
+        Film addedFilm = filmStorage.addFilm(testFilm);
+
+        Film foundFilm = filmStorage.getFilmById(addedFilm.getId());
+
+        // Жанры приходят из того же запроса, без дублей и упорядоченными по id
+        assertThat(foundFilm.getGenres()).extracting(Genre::getId).containsExactly(1L, 2L);
+        assertThat(foundFilm.getGenres()).extracting(Genre::getName).doesNotContainNull();
+        assertThat(foundFilm.getDirectors()).isEmpty();
+        assertThat(foundFilm.getMpa().getName()).isEqualTo("G");
+    }
+
+    @Test
+    public void testGetFilmsByIdsKeepsCallerOrder() {
+        Film first = filmStorage.addFilm(testFilm);
+        Film second = filmStorage.addFilm(TestData.film("Second Film"));
+
+        List<Film> films = filmStorage.getFilmsByIds(List.of(second.getId(), -1L, first.getId(), second.getId()));
+
+        // Несуществующие id и повторы отбрасываются, порядок остаётся как в запросе
+        assertThat(films).extracting(Film::getId).containsExactly(second.getId(), first.getId());
+    }
+
+    @Test
+    public void testRolledBackLikeDoesNotReachIndexes() {
+        Film film = filmStorage.addFilm(testFilm);
+        User user = userStorage.addUser(TestData.user("rollback"));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            filmStorage.addLike(film.getId(), user.getId());
+            status.setRollbackOnly();
+        });
+        // Индексы в памяти меняются только после фиксации, поэтому откат не оставляет в них лайк
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM film WHERE film_id = ?", Integer.class,
+                film.getId())).isZero();
+        assertThat(popularFilmsIndex.getLikes(film.getId())).isZero();
+        assertThat(likesMatrix.getLikedFilms(user.getId())).isEmpty();
+
+        filmStorage.addLike(film.getId(), user.getId());
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            filmStorage.removeLike(film.getId(), user.getId());
+            status.setRollbackOnly();
+        });
+        assertThat(popularFilmsIndex.getLikes(film.getId())).isEqualTo(1);
+        assertThat(likesMatrix.getLikedFilms(user.getId())).containsExactly(film.getId().intValue());
+    }
+
+    private static Film filmWithId(long id) {
+        Film film = TestData.film("Cached " + id);
+        film.setId(id);
+        return film;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
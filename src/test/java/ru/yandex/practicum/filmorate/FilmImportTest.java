@@ -0,0 +1,185 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.yandex.practicum.filmorate.cache.ReferenceDataCache;
+import ru.yandex.practicum.filmorate.dal.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.ImportCheckpointDbStorage;
+import ru.yandex.practicum.filmorate.dto.FilmImportReport;
+import ru.yandex.practicum.filmorate.importer.FilmImportFormat;
+import ru.yandex.practicum.filmorate.importer.FilmImportService;
+import ru.yandex.practicum.filmorate.mapper.RequestDirector;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class FilmImportTest {
+    private final MockMvc mockMvc;
+    private final ObjectMapper objectMapper;
+    private final FilmDbStorage filmStorage;
+    private final DirectorDbStorage directorStorage;
+    private final ImportCheckpointDbStorage checkpointStorage;
+    private final ReferenceDataCache referenceDataCache;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testCsvImportAddsValidRowsAndReportsRejected() throws Exception {
+        int directorId = directorStorage.createDirector(newDirector("Imported Director")).getId();
+        String csv = "name,description,releaseDate,duration,mpa,genres,directors\n" +
+                "Csv One,\"Quoted, with comma\nand newline\",2001-02-03,100,1,1;2," + directorId + "\n" +
+                "Csv Bad Date,,2001-13-40,100,1,,\n" +
+                "Csv Old,,1800-01-01,100,1,,\n" +
+                "\n" +
+                "Csv Unknown Genre,,2001-02-03,100,1,999,\n" +
+                "Csv Two,,2002-02-02,90,2,,\n";
+
+        JsonNode report = postImport(csv, "text/csv");
+
+        assertThat(report.get("processed").asLong()).isEqualTo(5);
+        assertThat(report.get("imported").asLong()).isEqualTo(2);
+        assertThat(report.get("rejected").asLong()).isEqualTo(3);
+        assertThat(report.get("completed").asBoolean()).isTrue();
+        assertThat(report.get("rejections")).extracting(node -> node.get("record").asLong())
+                .containsExactly(2L, 3L, 4L);
+
+        Long filmId = jdbcTemplate.queryForObject("SELECT film_id FROM film WHERE name = 'Csv One'", Long.class);
+        assertThat(filmStorage.existsById(filmId)).isTrue();
+        Film film = filmStorage.getFilmById(filmId);
+        assertThat(film.getDescription()).isEqualTo("Quoted, with comma\nand newline");
+        assertThat(film.getGenres()).extracting(Genre::getId).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(film.getDirectors()).extracting(Director::getId).containsExactly(directorId);
+    }
+
+    @Test
+    public void testOversizedRecordIsRejectedAndReadingContinues() throws Exception {
+        // Незакрытая кавычка: без предела запись тянулась бы до конца источника
+        String csv = "name,description,releaseDate,duration,mpa,genres,directors\n" +
+                "Csv Long,\"" + "x".repeat(70_000) + "\n" +
+                "Csv After Long,,2003-03-03,90,1,,\n";
+
+        JsonNode report = postImport(csv, "text/csv");
+
+        assertThat(report.get("imported").asLong()).isEqualTo(1);
+        assertThat(report.get("rejections")).extracting(node -> node.get("record").asLong()).containsExactly(1L);
+        assertThat(countFilms("Csv After Long")).isEqualTo(1);
+
+        String ndjson = "{\"name\":\"" + "y".repeat(70_000) + "\"}\n" +
+                "{\"name\":\"Ndjson After Long\",\"releaseDate\":\"2000-01-01\",\"duration\":90," +
+                "\"mpa\":{\"id\":1}}\n";
+        report = postImport(ndjson, "application/x-ndjson");
+        assertThat(report.get("imported").asLong()).isEqualTo(1);
+        assertThat(report.get("rejections")).extracting(node -> node.get("record").asLong()).containsExactly(1L);
+    }
+
+    @Test
+    public void testImportIsWrittenWithMultiRowInserts() throws Exception {
+        int directorId = directorStorage.createDirector(newDirector("Bulk Director")).getId();
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < 250; i++) {
+            ndjson.append("{\"name\":\"Bulk ").append(i).append("\",\"releaseDate\":\"2000-01-01\",\"duration\":90,")
+                    .append("\"mpa\":{\"id\":1},\"genres\":[{\"id\":1}],\"directors\":[{\"id\":")
+                    .append(directorId).append("}]}\n");
+        }
+
+        // Чтение отметки — 2 запроса, справочник режиссеров — 1, сдвиг отметки — 1,
+        // фильмы, жанры и режиссеры — по 3 INSERT до 100 строк
+        SqlStatements.assertMaxStatements(13, () -> postImport(ndjson.toString(), "application/x-ndjson"));
+        Integer imported = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film f " +
+                "JOIN film_genre fg ON fg.film_id = f.film_id " +
+                "JOIN films_directors fd ON fd.film_id = f.film_id " +
+                "WHERE f.name LIKE 'Bulk %'", Integer.class);
+        assertThat(imported).isEqualTo(250);
+    }
+
+    @Test
+    public void testInterruptedImportResumesFromCheckpoint() {
+        FilmImportService service = new FilmImportService(filmStorage, directorStorage, checkpointStorage,
+                referenceDataCache, objectMapper, transactionManager, 2);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            lines.add("{\"name\":\"Resumed " + i + "\",\"releaseDate\":\"2000-01-01\",\"duration\":90," +
+                    "\"mpa\":{\"id\":1}}");
+        }
+        byte[] source = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+
+        // Источник обрывается на пятой записи: сохранены две полные пачки по две записи
+        int cut = String.join("\n", lines.subList(0, 4)).length() + 10;
+        assertThatThrownBy(() -> service.importFilms(brokenAfter(source, cut), FilmImportFormat.NDJSON, "resume"))
+                .isInstanceOf(UncheckedIOException.class);
+        assertThat(countFilms("Resumed %")).isEqualTo(4);
+
+        FilmImportReport report = service.importFilms(new ByteArrayInputStream(source), FilmImportFormat.NDJSON,
+                "resume");
+        assertThat(report.getSkipped()).isEqualTo(4);
+        assertThat(report.getImported()).isEqualTo(3);
+        assertThat(countFilms("Resumed %")).isEqualTo(7);
+
+        // Завершённый импорт повторно ничего не добавляет
+        FilmImportReport repeated = service.importFilms(new ByteArrayInputStream(source), FilmImportFormat.NDJSON,
+                "resume");
+        assertThat(repeated.getImported()).isZero();
+        assertThat(countFilms("Resumed %")).isEqualTo(7);
+    }
+
+    private JsonNode postImport(String body, String contentType) throws Exception {
+        String response = mockMvc.perform(post("/films/import")
+                        .contentType(contentType)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response);
+    }
+
+    private int countFilms(String namePattern) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film WHERE name LIKE ?", Integer.class,
+                namePattern);
+    }
+
+    private static InputStream brokenAfter(byte[] source, int length) {
+        return new FilterInputStream(new ByteArrayInputStream(source, 0, length)) {
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+                int read = super.read(buffer, offset, count);
+                if (read < 0) {
+                    throw new IOException("Соединение разорвано");
+                }
+                return read;
+            }
+        };
+    }
+
+    private static RequestDirector newDirector(String name) {
+        RequestDirector director = new RequestDirector();
+        director.setName(name);
+        return director;
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.EventService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class LikeBatchTest {
+    private final MockMvc mockMvc;
+    private final ObjectMapper objectMapper;
+    private final UserDbStorage userStorage;
+    private final FilmDbStorage filmStorage;
+    private final PopularFilmsIndex popularFilmsIndex;
+    private final EventService eventService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void testBatchReportsStatusPerLike() throws Exception {
+        User user = userStorage.addUser(TestData.user("batch"));
+        Film film = filmStorage.addFilm(TestData.film("Batch Film"));
+        String body = String.join("\n",
+                like(film.getId(), user.getId()),
+                like(film.getId(), user.getId()),
+                like(film.getId() + 1000, user.getId()),
+                like(film.getId(), user.getId() + 1000),
+                "{\"filmId\":" + film.getId() + "}");
+
+        List<JsonNode> results = postBatch(body);
+
+        assertThat(results).extracting(node -> node.get("status").asText())
+                .containsExactly("ADDED", "ALREADY_LIKED", "FILM_NOT_FOUND", "USER_NOT_FOUND", "INVALID");
+        assertThat(results).extracting(node -> node.get("index").asInt()).containsExactly(0, 1, 2, 3, 4);
+        assertThat(likesCount(film.getId())).isEqualTo(1);
+        assertThat(popularFilmsIndex.getLikes(film.getId())).isEqualTo(1);
+
+        // Событие пишется только для действительно добавленного лайка
+        eventService.flush();
+        Integer events = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM events WHERE user_id = ? " +
+                "AND event_type = 'LIKE' AND entity_id = ?", Integer.class, user.getId(), film.getId());
+        assertThat(events).isEqualTo(1);
+    }
+
+    @Test
+    public void testBatchIsWrittenWithBatchedStatements() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            users.add(userStorage.addUser(TestData.user("batch" + i)));
+        }
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            films.add(filmStorage.addFilm(TestData.film("Batch Film")));
+        }
+        List<String> lines = new ArrayList<>();
+        for (User user : users) {
+            for (Film film : films) {
+                lines.add(like(film.getId(), user.getId()));
+            }
+        }
+
+        // Чтение существующих пар, три многострочных INSERT по 100 строк и пакет счётчиков;
+        // события уходят в очередь ленты и пишутся фоновым потоком
+        SqlStatements.assertMaxStatements(5, () -> postBatch(String.join("\n", lines)));
+        for (Film film : films) {
+            assertThat(likesCount(film.getId())).isEqualTo(users.size());
+        }
+    }
+
+    private List<JsonNode> postBatch(String body) throws Exception {
+        MvcResult started = mockMvc.perform(post("/films/likes:batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String response = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<JsonNode> results = new ArrayList<>();
+        objectMapper.readTree(response).forEach(results::add);
+        return results;
+    }
+
+    private int likesCount(Long filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM film WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    private static String like(Long filmId, Long userId) {
+        return "{\"filmId\":" + filmId + ",\"userId\":" + userId + "}";
+    }
+}
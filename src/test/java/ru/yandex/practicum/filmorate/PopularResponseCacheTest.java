@@ -0,0 +1,145 @@
+package ru.yandex.practicum.filmorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.cache.PopularResponseCache;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.index.PopularFilmsIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class PopularResponseCacheTest {
+    private final MockMvc mockMvc;
+    private final ObjectMapper objectMapper;
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final FilmCache filmCache;
+    private final PopularResponseCache popularResponseCache;
+    private final PopularFilmsIndex popularFilmsIndex;
+
+    @Test
+    public void testPopularIsServedFromCacheUntilDataChanges() throws Exception {
+        // Год, которого нет у других тестов: в выборке только фильмы этого теста
+        Film first = filmStorage.addFilm(newFilm("Cached First"));
+        Film second = filmStorage.addFilm(newFilm("Cached Second"));
+        User user = userStorage.addUser(TestData.user("cached"));
+        filmStorage.addLike(first.getId(), user.getId());
+        assertThat(popularIds()).containsExactly(first.getId(), second.getId());
+
+        SqlStatements.assertMaxStatements(0, this::popularIds);
+
+        // Лайк и изменение фильма видны в следующем же ответе
+        filmStorage.addLike(second.getId(), userStorage.addUser(TestData.user("cached")).getId());
+        filmStorage.addLike(second.getId(), userStorage.addUser(TestData.user("cached")).getId());
+        assertThat(popularIds()).containsExactly(second.getId(), first.getId());
+        second.setName("Cached Renamed");
+        filmStorage.updateFilm(second);
+        assertThat(popular().get(0).get("name").asText()).isEqualTo("Cached Renamed");
+    }
+
+    @Test
+    public void testStaleResponseIsServedWhileRefreshing() throws Exception {
+        popularResponseCache.get(7777, null, null, () -> List.of("first"));
+        filmCache.invalidateAll();
+
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<byte[]> refresh = CompletableFuture.supplyAsync(() ->
+                popularResponseCache.get(7777, null, null, () -> {
+                    loading.countDown();
+                    await(release);
+                    return List.of("second");
+                }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Пока один запрос пересчитывает ответ, остальные получают прежний, не вызывая загрузку
+        byte[] stale = popularResponseCache.get(7777, null, null, () -> {
+            throw new AssertionError("Повторный пересчёт во время обновления");
+        });
+        assertThat(new String(stale)).isEqualTo("[\"first\"]");
+
+        release.countDown();
+        assertThat(new String(refresh.get(5, TimeUnit.SECONDS))).isEqualTo("[\"second\"]");
+        byte[] fresh = popularResponseCache.get(7777, null, null, () -> {
+            throw new AssertionError("Пересчёт без изменений данных");
+        });
+        assertThat(new String(fresh)).isEqualTo("[\"second\"]");
+    }
+
+    @Test
+    public void testInvalidCountIsRejectedBeforeCache() throws Exception {
+        int size = popularResponseCache.size();
+        for (String count : List.of("0", "-1", "1001", "2147483647")) {
+            mockMvc.perform(get("/films/popular").param("count", count)).andExpect(status().isBadRequest());
+        }
+        assertThat(popularResponseCache.size()).isEqualTo(size);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedCombinationsAreEvicted() {
+        PopularResponseCache cache = new PopularResponseCache(popularFilmsIndex, filmCache, objectMapper, true, 10,
+                new SimpleMeterRegistry());
+        for (int count = 1; count <= 25; count++) {
+            // Первая комбинация запрашивается постоянно и не вытесняется
+            cache.get(1, null, null, () -> List.of("hot"));
+            cache.get(count, null, null, List::of);
+            assertThat(cache.size()).isLessThanOrEqualTo(10);
+        }
+        byte[] hot = cache.get(1, null, null, () -> {
+            throw new AssertionError("Часто запрашиваемая комбинация вытеснена");
+        });
+        assertThat(new String(hot)).isEqualTo("[\"hot\"]");
+    }
+
+    private List<Long> popularIds() throws Exception {
+        return popular().stream().map(node -> node.get("id").asLong()).toList();
+    }
+
+    private List<JsonNode> popular() throws Exception {
+        String body = mockMvc.perform(get("/films/popular").param("year", "1937"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<JsonNode> films = new ArrayList<>();
+        objectMapper.readTree(body).forEach(films::add);
+        return films;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Film newFilm(String name) {
+        Film film = TestData.film(name);
+        film.setReleaseDate(LocalDate.of(1937, 1, 1));
+        return film;
+    }
+}
@@ -0,0 +1,162 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.dal.EventDbStorage;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.ReviewDbStorage;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmLike;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.monitoring.SqlStatementStats;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Горячие запросы не должны сканировать большие таблицы целиком. Запросы берутся не из копии SQL,
+// а перехватываются при вызове настоящих методов хранилищ и проверяются через EXPLAIN.
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class QueryPlanTest {
+    private static final Pattern TABLE_SCAN = Pattern.compile("PUBLIC\\.(\\w+)\\.tableScan");
+    private static final List<String> LARGE_TABLES = List.of("FILM", "FILM_LIKES", "FILM_GENRE", "FILMS_DIRECTORS",
+            "USERS", "FRIENDS", "REVIEWS", "REVIEW_LIKES", "EVENTS");
+
+    private final FilmDbStorage filmStorage;
+    private final UserDbStorage userStorage;
+    private final ReviewDbStorage reviewStorage;
+    private final EventDbStorage eventStorage;
+    private final FilmCache filmCache;
+    private final JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private User friend;
+    private Film film;
+    private int directorId;
+
+    @BeforeEach
+    void setUp() {
+        user = userStorage.addUser(TestData.user("plan"));
+        friend = userStorage.addUser(TestData.user("plan-friend"));
+        userStorage.addFriend(user.getId(), friend.getId());
+        userStorage.addFriend(friend.getId(), user.getId());
+        jdbcTemplate.update("INSERT INTO directors (name) VALUES ('Plan Director')");
+        directorId = jdbcTemplate.queryForObject("SELECT MAX(director_id) FROM directors", Integer.class);
+        film = filmStorage.addFilm(newFilm());
+        filmStorage.addLike(film.getId(), user.getId());
+        filmStorage.addLike(film.getId(), friend.getId());
+        filmCache.invalidateAll();
+    }
+
+    @Test
+    public void testCommonFilmsUseIndexes() throws Exception {
+        assertNoTableScans(() -> filmStorage.getCommonFilms(user.getId(), friend.getId()));
+    }
+
+    @Test
+    public void testFilmsByDirectorUseIndexes() throws Exception {
+        assertNoTableScans(() -> filmStorage.getFilmsByDirector(directorId, "likes"));
+        filmCache.invalidateAll();
+        assertNoTableScans(() -> filmStorage.getFilmsByDirector(directorId, "year"));
+    }
+
+    @Test
+    public void testReviewsByFilmUseIndexes() throws Exception {
+        Review review = new Review();
+        review.setContent("Plan");
+        review.setIsPositive(true);
+        review.setUserId(user.getId());
+        review.setFilmId(film.getId());
+        reviewStorage.addReview(review);
+
+        assertNoTableScans(() -> reviewStorage.getReviewsByFilmId(film.getId(), 10));
+    }
+
+    @Test
+    public void testFriendsUseIndexes() throws Exception {
+        // Без общих друзей запроса к БД нет вовсе, проверять было бы нечего
+        User common = userStorage.addUser(TestData.user("plan-common"));
+        userStorage.addFriend(user.getId(), common.getId());
+        userStorage.addFriend(friend.getId(), common.getId());
+
+        assertNoTableScans(() -> userStorage.getFriends(user.getId()));
+        assertNoTableScans(() -> userStorage.getCommonFriends(user.getId(), friend.getId()));
+    }
+
+    @Test
+    public void testCursorPagesUseIndexes() throws Exception {
+        Review review = new Review();
+        review.setContent("Plan");
+        review.setIsPositive(true);
+        review.setUserId(user.getId());
+        review.setFilmId(film.getId());
+        review = reviewStorage.addReview(review);
+        Long reviewId = review.getReviewId();
+
+        assertNoTableScans(() -> filmStorage.getFilmsPage(0L, 10));
+        assertNoTableScans(() -> userStorage.getUsersPage(user.getId(), 10));
+        assertNoTableScans(() -> userStorage.getFriendsPage(user.getId(), 0L, 10));
+        assertNoTableScans(() -> reviewStorage.getReviewsPage(null, 0, reviewId, 10));
+        assertNoTableScans(() -> reviewStorage.getReviewsPage(film.getId(), 0, reviewId, 10));
+    }
+
+    @Test
+    public void testLikeBatchUsesIndexes() throws Exception {
+        Film other = filmStorage.addFilm(newFilm());
+        assertNoTableScans(() -> filmStorage.addLikes(List.of(new FilmLike(film.getId(), user.getId()),
+                new FilmLike(other.getId(), user.getId()))));
+    }
+
+    @Test
+    public void testUserFeedUsesIndexes() throws Exception {
+        assertNoTableScans(() -> eventStorage.getUserFeed(user.getId()));
+        assertNoTableScans(() -> {
+            eventStorage.streamUserFeed(user.getId(), 0L, 10, event -> {
+            });
+            return null;
+        });
+    }
+
+    @Test
+    public void testDeleteUserUsesIndexes() throws Exception {
+        assertNoTableScans(() -> {
+            userStorage.deleteUser(friend.getId());
+            return null;
+        });
+    }
+
+    private void assertNoTableScans(Callable<?> action) throws Exception {
+        SqlStatementStats stats = SqlStatements.count(action);
+        assertThat(stats.getSqls()).isNotEmpty();
+        for (String sql : stats.getSqls()) {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+            Matcher matcher = TABLE_SCAN.matcher(plan);
+            while (matcher.find()) {
+                assertThat(LARGE_TABLES).as("Полный просмотр таблицы в плане:%n%s", plan)
+                        .doesNotContain(matcher.group(1));
+            }
+        }
+    }
+
+    private Film newFilm() {
+        Film film = TestData.film("Planned Film");
+        Director director = new Director();
+        director.setId(directorId);
+        film.setDirectors(List.of(director));
+        return film;
+    }
+}
@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.ReviewDbStorage;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.Review;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ReviewDbStorageTest {
+    private final ReviewDbStorage reviewStorage;
+    private final UserDbStorage userStorage;
+    private final FilmDbStorage filmStorage;
+    private final NamedParameterJdbcOperations jdbcOperations;
+
+    private Review review;
+
+    @BeforeEach
+    void setUp() {
+        User author = userStorage.addUser(TestData.user("author"));
+        Film film = new Film();
+        film.setName("Reviewed Film");
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        MpaRating mpa = new MpaRating();
+        mpa.setId(1L);
+        film.setMpa(mpa);
+        film = filmStorage.addFilm(film);
+
+        review = new Review();
+        review.setContent("Review");
+        review.setIsPositive(true);
+        review.setUserId(author.getId());
+        review.setFilmId(film.getId());
+        review = reviewStorage.addReview(review);
+    }
+
+    @Test
+    public void testVoteSwitchesChangeUseful() {
+        User voter = userStorage.addUser(TestData.user("voter"));
+
+        reviewStorage.addLike(review.getReviewId(), voter.getId());
+        reviewStorage.addLike(review.getReviewId(), voter.getId());
+        assertThat(reviewStorage.getReviewById(review.getReviewId()).getUseful()).isEqualTo(1);
+
+        reviewStorage.addDislike(review.getReviewId(), voter.getId());
+        assertThat(reviewStorage.getReviewById(review.getReviewId()).getUseful()).isEqualTo(-1);
+
+        // Удаление лайка, которого нет, не меняет рейтинг
+        reviewStorage.removeLike(review.getReviewId(), voter.getId());
+        assertThat(reviewStorage.getReviewById(review.getReviewId()).getUseful()).isEqualTo(-1);
+
+        reviewStorage.removeDislike(review.getReviewId(), voter.getId());
+        assertThat(reviewStorage.getReviewById(review.getReviewId()).getUseful()).isZero();
+    }
+
+    @Test
+    public void testConcurrentVotesMatchLedger() throws Exception {
+        List<Long> voterIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            voterIds.add(userStorage.addUser(TestData.user("stress" + i)).getId());
+        }
+        Long reviewId = review.getReviewId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 200; i++) {
+                        Long userId = voterIds.get(random.nextInt(voterIds.size()));
+                        switch (random.nextInt(4)) {
+                            case 0 -> reviewStorage.addLike(reviewId, userId);
+                            case 1 -> reviewStorage.addDislike(reviewId, userId);
+                            case 2 -> reviewStorage.removeLike(reviewId, userId);
+                            default -> reviewStorage.removeDislike(reviewId, userId);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Integer ledger = jdbcOperations.queryForObject(
+                "SELECT COALESCE(SUM(CASE WHEN is_like THEN 1 ELSE -1 END), 0) FROM review_likes " +
+                        "WHERE review_id = :reviewId", Map.of("reviewId", reviewId), Integer.class);
+        assertThat(reviewStorage.getReviewById(reviewId).getUseful()).isEqualTo(ledger);
+    }
+}
@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// schema.sql на базе, созданной первой версией схемы: так стартует приложение с существующей базой-файлом
+class SchemaMigrationTest {
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:legacy-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "sa", "password");
+        jdbc = new JdbcTemplate(dataSource);
+        // Таблицы в том виде, в каком их создавала первая версия схемы
+        jdbc.execute("CREATE TABLE MPA_RATING (rating_id INTEGER PRIMARY KEY, rating_MPA VARCHAR(50) NOT NULL)");
+        jdbc.execute("CREATE TABLE users (user_id INTEGER AUTO_INCREMENT PRIMARY KEY, email VARCHAR(255) NOT NULL, " +
+                "login VARCHAR(50) NOT NULL, name VARCHAR(100), birthday DATE)");
+        jdbc.execute("CREATE TABLE film (film_id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100) NOT NULL, " +
+                "description TEXT, release_date DATE, duration INTEGER, rating_id INTEGER, " +
+                "FOREIGN KEY (rating_id) REFERENCES MPA_RATING(rating_id))");
+        jdbc.execute("CREATE TABLE film_likes (film_id INTEGER, user_id INTEGER, PRIMARY KEY (film_id, user_id), " +
+                "FOREIGN KEY (film_id) REFERENCES film(film_id) ON DELETE CASCADE, " +
+                "FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE)");
+        jdbc.update("INSERT INTO users (user_id, email, login) VALUES (1, 'a@example.com', 'a'), " +
+                "(2, 'b@example.com', 'b')");
+        jdbc.update("INSERT INTO film (film_id, name, release_date) VALUES (1, 'Liked', DATE '1999-05-01'), " +
+                "(2, 'Unliked', DATE '2004-01-01')");
+        jdbc.update("INSERT INTO film_likes (film_id, user_id) VALUES (1, 1), (1, 2)");
+    }
+
+    @Test
+    public void testLikesCountIsAddedAndBackfilledOnce() {
+        migrate();
+        assertThat(likesCount(1)).isEqualTo(2);
+        assertThat(likesCount(2)).isZero();
+
+        // При следующем старте счётчики не пересчитываются: их дальше ведёт приложение
+        jdbc.update("UPDATE film SET likes_count = 5 WHERE film_id = 1");
+        migrate();
+        assertThat(likesCount(1)).isEqualTo(5);
+    }
+
+    @Test
+    public void testReleaseYearIsAddedToLegacyFilmTable() {
+        migrate();
+        assertThat(jdbc.queryForList("SELECT release_year FROM film ORDER BY film_id", Integer.class))
+                .containsExactly(1999, 2004);
+    }
+
+    @Test
+    public void testUnusedReleaseYearIndexIsDropped() {
+        // Так выглядела база, созданная схемой с индексом по году
+        jdbc.execute("ALTER TABLE film ADD COLUMN release_year INTEGER " +
+                "GENERATED ALWAYS AS (EXTRACT(YEAR FROM release_date))");
+        jdbc.execute("CREATE INDEX idx_film_release_year ON film (release_year)");
+        migrate();
+        assertThat(indexExists("IDX_FILM_RELEASE_YEAR")).isFalse();
+    }
+
+    @Test
+    public void testReplacedReviewIndexIsDropped() {
+        migrate();
+        jdbc.execute("CREATE INDEX idx_reviews_film_useful ON reviews (film_id, useful)");
+        migrate();
+        assertThat(indexExists("IDX_REVIEWS_FILM_USEFUL")).isFalse();
+        assertThat(indexExists("IDX_REVIEWS_FILM_USEFUL_ID")).isTrue();
+    }
+
+    private void migrate() {
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+    }
+
+    private int likesCount(long filmId) {
+        return jdbc.queryForObject("SELECT likes_count FROM film WHERE film_id = ?", Integer.class, filmId);
+    }
+
+    private boolean indexExists(String name) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM information_schema.indexes WHERE index_name = ?",
+                Integer.class, name) > 0;
+    }
+}
@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.cache.FilmCache;
+import ru.yandex.practicum.filmorate.dal.DirectorDbStorage;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.UserDbStorage;
+import ru.yandex.practicum.filmorate.mapper.RequestDirector;
+import ru.yandex.practicum.filmorate.model.Director;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class SqlStatementCountTest {
+    private final MockMvc mockMvc;
+    private final UserDbStorage userStorage;
+    private final FilmDbStorage filmStorage;
+    private final FilmCache filmCache;
+    private final DirectorDbStorage directorStorage;
+
+    private User user;
+    private User friend;
+    private Film film;
+
+    @BeforeEach
+    void setUp() {
+        user = userStorage.addUser(TestData.user("counted"));
+        friend = userStorage.addUser(TestData.user("counted-friend"));
+        film = filmStorage.addFilm(TestData.film("Counted Film"));
+    }
+
+    @Test
+    public void testAddFriendStatements() throws Exception {
+        // Вставка и список друзей: существование пользователей проверяется без SQL. Третий запрос - подписчики
+        // пользователя для сброса их подсказок друзей; он выполняется, только если в кэше подсказок есть записи
+        SqlStatements.assertMaxStatements(3, () -> mockMvc.perform(
+                put("/users/{id}/friends/{friendId}", user.getId(), friend.getId())).andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testGetFilmStatements() throws Exception {
+        mockMvc.perform(get("/films/{id}", film.getId())).andExpect(status().isOk());
+        // Повторное чтение отдаётся из кэша фильмов
+        SqlStatements.assertMaxStatements(0, () -> mockMvc.perform(
+                get("/films/{id}", film.getId())).andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testAddLikeStatements() throws Exception {
+        SqlStatements.assertMaxStatements(3, () -> mockMvc.perform(
+                put("/films/{id}/like/{userId}", film.getId(), user.getId())).andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testPopularStatements() throws Exception {
+        mockMvc.perform(get("/films/popular")).andExpect(status().isOk());
+        SqlStatements.assertMaxStatements(3, () -> mockMvc.perform(
+                get("/films/popular").param("count", "10")).andExpect(status().isOk()));
+    }
+
+    @Test
+    public void testCommonFilmsStatements() throws Exception {
+        Film popular = filmStorage.addFilm(TestData.film("Counted Popular"));
+        User other = userStorage.addUser(TestData.user("counted-other"));
+        filmStorage.addLike(film.getId(), user.getId());
+        filmStorage.addLike(film.getId(), friend.getId());
+        filmStorage.addLike(popular.getId(), user.getId());
+        filmStorage.addLike(popular.getId(), friend.getId());
+        filmStorage.addLike(popular.getId(), other.getId());
+        filmCache.invalidateAll();
+
+        // Пересечение лайков и порядок считаются в памяти, из БД - только фильмы, жанры и режиссеры
+        SqlStatements.assertMaxStatements(3, () -> mockMvc.perform(get("/films/common")
+                        .param("userId", user.getId().toString())
+                        .param("friendId", friend.getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(popular.getId().intValue(), film.getId().intValue()))));
+    }
+
+    @Test
+    public void testFilmsByDirectorStatements() throws Exception {
+        Director director = new Director();
+        director.setId(directorStorage.createDirector(newDirector()).getId());
+        for (int i = 0; i < 20; i++) {
+            Film directed = TestData.film("Counted Directed " + i);
+            directed.setDirectors(List.of(director));
+            filmStorage.addFilm(directed);
+        }
+        filmCache.invalidateAll();
+
+        // Фильмы с сортировкой одним запросом, жанры и режиссеры - ещё по одному, сколько бы ни было фильмов
+        SqlStatements.assertMaxStatements(3, () -> mockMvc.perform(get("/films/director/{id}", director.getId())
+                        .param("sortBy", "likes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(20)));
+    }
+
+    private RequestDirector newDirector() {
+        RequestDirector director = new RequestDirector();
+        director.setName("Counted Director");
+        return director;
+    }
+}
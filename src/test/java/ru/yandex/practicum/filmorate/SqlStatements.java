@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.monitoring.SqlStatementStats;
+import ru.yandex.practicum.filmorate.monitoring.SqlStatementTracker;
+
+import java.util.concurrent.Callable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Проверка числа SQL-запросов, выполненных в текущем потоке. С MockMvc весь HTTP-запрос выполняется
+// в потоке теста, поэтому так можно зафиксировать число запросов для эндпоинта.
+final class SqlStatements {
+
+    private SqlStatements() {
+    }
+
+    static SqlStatementStats count(Callable<?> action) throws Exception {
+        SqlStatementStats stats = new SqlStatementStats();
+        SqlStatementTracker.track(stats, action);
+        return stats;
+    }
+
+    static void assertMaxStatements(int max, Callable<?> action) throws Exception {
+        SqlStatementStats stats = count(action);
+        assertThat(stats.getStatements())
+                .as("SQL-запросы: %s", stats.getByShape())
+                .isLessThanOrEqualTo(max);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+// Фильмы и пользователи для тестов хранилищ: все обязательные поля заполнены допустимыми значениями,
+// тест меняет только те поля, которые проверяет. Email уникален, чтобы тесты не мешали друг другу в общей БД
+final class TestData {
+
+    private TestData() {
+    }
+
+    static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        MpaRating mpa = new MpaRating();
+        mpa.setId(1L);
+        film.setMpa(mpa);
+        return film;
+    }
+
+    static User user(String login) {
+        User user = new User();
+        user.setEmail(login + System.nanoTime() + "@example.com");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+}
@@ -7,11 +7,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.dal.FilmDbStorage;
+import ru.yandex.practicum.filmorate.dal.FriendGraphLoader;
 import ru.yandex.practicum.filmorate.dal.UserDbStorage;
 import ru.yandex.practicum.filmorate.dal.mappers.UserRowMapper;
+import ru.yandex.practicum.filmorate.dto.RecommendationStats;
+import ru.yandex.practicum.filmorate.index.FriendGraph;
+import ru.yandex.practicum.filmorate.index.RecommendationEngine;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -24,6 +32,11 @@ import static org.assertj.core.api.Assertions.assertThat;
 @Import({UserDbStorage.class, UserRowMapper.class})
 class UserDbStorageTest {
     private final UserDbStorage userStorage;
+    private final FilmDbStorage filmStorage;
+    private final FriendGraph friendGraph;
+    private final FriendGraphLoader friendGraphLoader;
+    private final JdbcTemplate jdbcTemplate;
+    private final RecommendationEngine recommendationEngine;
 
     private User testUser;
 
@@ -164,4 +177,133 @@ class UserDbStorageTest {
         assertThat(commonFriends).hasSize(1);
         assertThat(commonFriends.get(0).getId()).isEqualTo(user2.getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFriendGraphFollowsFriendsTable() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            users.add(userStorage.addUser(TestData.user("graph")));
+        }
+        // Друзья добавляются не по порядку id, массив в графе всё равно должен остаться отсортированным
+        for (int i = 5; i >= 1; i--) {
+            userStorage.addFriend(users.get(0).getId(), users.get(i).getId());
+        }
+        userStorage.addFriend(users.get(1).getId(), users.get(3).getId());
+        userStorage.addFriend(users.get(1).getId(), users.get(4).getId());
+        userStorage.removeFriend(users.get(0).getId(), users.get(2).getId());
+        userStorage.deleteUser(users.get(4).getId());
+
+        // Входящие связи удалённого пользователя убраны из графа, и счётчик связей сходится с таблицей
+        assertFriendsMatchTable(users);
+        assertThat(friendGraph.getStats().getFriendships())
+                .isEqualTo(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friends", Long.class));
+        assertThat(userStorage.getCommonFriends(users.get(0).getId(), users.get(1).getId()))
+                .extracting(User::getId).containsExactly(users.get(3).getId());
+        assertThat(userStorage.getFriendsPage(users.get(0).getId(), users.get(1).getId(), 1))
+                .extracting(User::getId).containsExactly(users.get(3).getId());
+
+        friendGraphLoader.rebuild();
+        assertFriendsMatchTable(users);
+    }
+
+    @Test
+    public void testGetSuggestions() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            users.add(userStorage.addUser(TestData.user("suggest")));
+        }
+        long[] ids = users.stream().mapToLong(User::getId).toArray();
+        userStorage.addFriend(ids[0], ids[1]);
+        userStorage.addFriend(ids[0], ids[2]);
+        userStorage.addFriend(ids[0], ids[3]);
+        userStorage.addFriend(ids[1], ids[0]);
+        userStorage.addFriend(ids[1], ids[5]);
+        userStorage.addFriend(ids[1], ids[4]);
+        userStorage.addFriend(ids[2], ids[4]);
+        userStorage.addFriend(ids[2], ids[5]);
+        userStorage.addFriend(ids[3], ids[4]);
+        userStorage.addFriend(ids[3], ids[5]);
+        userStorage.addFriend(ids[3], ids[6]);
+
+        // У 4 и 5 по три общих знакомых, при равенстве первым идёт меньший id; сам пользователь не предлагается
+        assertThat(userStorage.getSuggestions(ids[0], 10)).extracting(User::getId)
+                .containsExactly(ids[4], ids[5], ids[6]);
+        assertThat(userStorage.getSuggestions(ids[0], 2)).extracting(User::getId)
+                .containsExactly(ids[4], ids[5]);
+
+        // Новый друг сразу пропадает из закэшированных подсказок
+        userStorage.addFriend(ids[0], ids[4]);
+        assertThat(userStorage.getSuggestions(ids[0], 10)).extracting(User::getId)
+                .containsExactly(ids[5], ids[6]);
+        userStorage.removeFriend(ids[0], ids[3]);
+        assertThat(userStorage.getSuggestions(ids[0], 10)).extracting(User::getId)
+                .containsExactly(ids[5]);
+        assertThat(userStorage.getSuggestions(ids[6], 10)).isEmpty();
+
+        // Изменение дружбы друга сбрасывает и подсказки тех, у кого он в друзьях
+        userStorage.addFriend(ids[2], ids[6]);
+        assertThat(userStorage.getSuggestions(ids[0], 10)).extracting(User::getId)
+                .containsExactly(ids[5], ids[6]);
+        userStorage.removeFriend(ids[2], ids[6]);
+        assertThat(userStorage.getSuggestions(ids[0], 10)).extracting(User::getId)
+                .containsExactly(ids[5]);
+    }
+
+    @Test
+    public void testGetRecommendations() {
+        User user1 = userStorage.addUser(testUser);
+        User user2 = new User();
+        user2.setEmail("similar@example.com");
+        user2.setLogin("similarLogin");
+        user2.setBirthday(LocalDate.of(1995, 5, 5));
+        user2 = userStorage.addUser(user2);
+
+        Film film1 = filmStorage.addFilm(TestData.film("Film 1"));
+        Film film2 = filmStorage.addFilm(TestData.film("Film 2"));
+
+        // Похожий пользователь лайкнул оба фильма, наш - только первый
+        filmStorage.addLike(film1.getId(), user1.getId());
+        filmStorage.addLike(film1.getId(), user2.getId());
+        filmStorage.addLike(film2.getId(), user2.getId());
+
+        List<Film> recommendations = userStorage.getRecommendations(user1.getId());
+        assertThat(recommendations).extracting(Film::getId).containsExactly(film2.getId());
+
+        // После лайка второго фильма рекомендовать больше нечего
+        filmStorage.addLike(film2.getId(), user1.getId());
+        assertThat(userStorage.getRecommendations(user1.getId())).isEmpty();
+    }
+
+    @Test
+    public void testNeighborRefreshCoversOnlyChangedUsers() {
+        User first = userStorage.addUser(TestData.user("neighbor"));
+        User second = userStorage.addUser(TestData.user("neighbor"));
+        User unrelated = userStorage.addUser(TestData.user("neighbor"));
+        Film shared = filmStorage.addFilm(TestData.film("Shared Film"));
+        Film other = filmStorage.addFilm(TestData.film("Other Film"));
+        filmStorage.addLike(shared.getId(), first.getId());
+        filmStorage.addLike(other.getId(), unrelated.getId());
+        recommendationEngine.refresh();
+
+        // Лайк второго пользователя меняет пересечения только с теми, кто лайкнул тот же фильм
+        filmStorage.addLike(shared.getId(), second.getId());
+        recommendationEngine.refresh();
+
+        RecommendationStats stats = recommendationEngine.getStats();
+        assertThat(stats.getLastRefreshUsers()).isEqualTo(2);
+        assertThat(stats.getEstimatedBytes()).isPositive();
+        recommendationEngine.refresh();
+        assertThat(recommendationEngine.getStats().getLastRefreshUsers()).isZero();
+    }
+
+    private void assertFriendsMatchTable(List<User> users) {
+        for (User user : users) {
+            List<Long> expected = jdbcTemplate.queryForList("SELECT friend_id FROM friends WHERE user_id = ? " +
+                    "ORDER BY friend_id", Long.class, user.getId());
+            assertThat(friendGraph.getFriends(user.getId())).containsExactly(
+                    expected.stream().mapToLong(Long::longValue).toArray());
+            assertThat(userStorage.getFriends(user.getId())).extracting(User::getId)
+                    .containsExactlyElementsOf(expected);
+        }
+    }
+}